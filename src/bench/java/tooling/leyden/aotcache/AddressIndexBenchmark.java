@@ -0,0 +1,159 @@
+package tooling.leyden.aotcache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares {@link AddressIndex} with a {@link ConcurrentHashMap} keyed by the same addresses, looking up every
+ * address from one thread, from four, and from three while another one keeps adding and removing addresses.
+ * Scores are lookups per second, or additions and removals per second for the writing thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AddressIndexBenchmark {
+
+	private static final int ADDRESSES = 100_000;
+	private static final long BASE = 0x0000000800000000L;
+
+	private final AddressIndex index = new AddressIndex();
+	private final Map<Long, Element> map = new ConcurrentHashMap<>();
+	private final long[] addresses = new long[ADDRESSES];
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < ADDRESSES; i++) {
+			// Aligned, the way addresses on an AOT map are
+			addresses[i] = BASE + i * 24L;
+			final var e = new ReferencingElement("Object" + i, "Object");
+			index.putIfAbsent(addresses[i], e);
+			map.put(addresses[i], e);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public int addressIndex() {
+		return lookUp(index);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public int concurrentHashMap() {
+		return lookUp(map);
+	}
+
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(ADDRESSES)
+	public int addressIndexFourThreads() {
+		return lookUp(index);
+	}
+
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(ADDRESSES)
+	public int concurrentHashMapFourThreads() {
+		return lookUp(map);
+	}
+
+	@Benchmark
+	@Group("addressIndexWhileWriting")
+	@GroupThreads(3)
+	public Element addressIndexReading(Reader reader) {
+		return index.get(addresses[reader.next()]);
+	}
+
+	@Benchmark
+	@Group("addressIndexWhileWriting")
+	@GroupThreads(1)
+	public void addressIndexWriting(Writer writer) {
+		final long address = writer.next();
+		index.putIfAbsent(address, writer.element);
+		index.remove(address);
+	}
+
+	@Benchmark
+	@Group("concurrentHashMapWhileWriting")
+	@GroupThreads(3)
+	public Element concurrentHashMapReading(Reader reader) {
+		return map.get(addresses[reader.next()]);
+	}
+
+	@Benchmark
+	@Group("concurrentHashMapWhileWriting")
+	@GroupThreads(1)
+	public void concurrentHashMapWriting(Writer writer) {
+		final long address = writer.next();
+		map.putIfAbsent(address, writer.element);
+		map.remove(address);
+	}
+
+	private int lookUp(AddressIndex index) {
+		int found = 0;
+		for (long address : addresses) {
+			if (index.get(address) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	private int lookUp(Map<Long, Element> map) {
+		int found = 0;
+		for (long address : addresses) {
+			if (map.get(address) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Goes through the addresses looked up, one on each call.
+	 */
+	@State(Scope.Thread)
+	public static class Reader {
+		private int next = 0;
+
+		int next() {
+			if (++next == ADDRESSES) {
+				next = 0;
+			}
+			return next;
+		}
+	}
+
+	/**
+	 * Addresses past the ones looked up, so writing never changes what readers find.
+	 */
+	@State(Scope.Thread)
+	public static class Writer {
+		private final Element element = new ReferencingElement("Writer", "Object");
+		private long next = BASE + ADDRESSES * 24L;
+
+		long next() {
+			next += 24;
+			if (next > BASE + ADDRESSES * 48L) {
+				next = BASE + ADDRESSES * 24L;
+			}
+			return next;
+		}
+	}
+}
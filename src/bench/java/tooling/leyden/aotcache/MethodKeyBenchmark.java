@@ -0,0 +1,68 @@
+package tooling.leyden.aotcache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operations that hash and compare methods, so they call {@link MethodObject#getKey()} all the time.
+ * Scores are methods per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MethodKeyBenchmark {
+
+	private static final int CLASSES = 200;
+	private static final int METHODS_PER_CLASS = 50;
+	private static final int METHODS = CLASSES * METHODS_PER_CLASS;
+
+	private Information information;
+	private final List<Element> methods = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		information = new Information();
+		for (int c = 0; c < CLASSES; c++) {
+			final var className = "org.example.package" + (c % 10) + ".Class" + c;
+			information.addAOTCacheElement(ElementFactory.getOrCreate(className, "Class", null), "Benchmark");
+			for (int m = 0; m < METHODS_PER_CLASS; m++) {
+				final var method = ElementFactory.getOrCreate("java.lang.String " + className + ".method" + m
+						+ "(java.lang.String, int, " + className + ")", "Method", null);
+				information.addAOTCacheElement(method, "Benchmark");
+				methods.add(method);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(METHODS)
+	public int addReference() {
+		final var element = new ReferencingElement("MethodKeyBenchmark", "KlassTrainingData");
+		methods.forEach(element::addReference);
+		// Moving the references to the graph is part of adding them
+		information.getReferenceGraph().build();
+		final var result = element.getReferences().size();
+		// So the graph doesn't grow with a new element on every invocation
+		information.getReferenceGraph().clear();
+		return result;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(METHODS)
+	public long getElements() {
+		return information.getElements(null, null, null, true, false, "Method").count();
+	}
+}
@@ -0,0 +1,84 @@
+package tooling.leyden.commands;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tooling.leyden.aotcache.Information;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Loading several training logs with {@code load trainingLog --parallelism N}. Each log has its own classes plus
+ * some shared with the rest, as logs of different runs of the same app do. Scores are lines per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelLoadBenchmark {
+
+	private static final int FILES = 8;
+	private static final int CLASSES = 10_000;
+
+	@Param({"1", "4"})
+	public int parallelism;
+
+	private Path dir;
+	private Path[] logs;
+	private LoadFileCommand loadFile;
+	private Information information;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("parallel-load");
+		logs = new Path[FILES];
+		for (int f = 0; f < FILES; f++) {
+			final var lines = new ArrayList<String>();
+			for (int i = 0; i < CLASSES; i++) {
+				lines.add("[info][class,load] org.example.Shared" + i + " source: jrt:/java.base");
+				lines.add("[info][class,load] org.example.File" + f + "Class" + i + " source: shared objects file");
+			}
+			logs[f] = Files.write(dir.resolve("training-" + f + ".log"), lines);
+		}
+		loadFile = new LoadFileCommand();
+		loadFile.setParent(new DefaultCommand());
+		loadFile.parallelism = parallelism;
+		information = loadFile.getParent().getInformation();
+	}
+
+	// Each load starts from an empty analysis, as the first load of a session does
+	@Setup(Level.Invocation)
+	public void clear() {
+		information.clear();
+	}
+
+	@TearDown
+	public void delete() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES * CLASSES * 2)
+	public int load() {
+		loadFile.trainingLog(logs);
+		return information.countExternal();
+	}
+}
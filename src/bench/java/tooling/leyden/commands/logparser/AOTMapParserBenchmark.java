@@ -0,0 +1,106 @@
+package tooling.leyden.commands.logparser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tooling.leyden.aotcache.Information;
+import tooling.leyden.commands.DefaultCommand;
+import tooling.leyden.commands.LoadFileCommand;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The two stages of loading the aot.map used on tests with {@link AOTMapParser}: reading and tokenizing the lines,
+ * and applying them to the information, which has to happen in file order. Also both together, as a load does.
+ * Scores are lines per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AOTMapParserBenchmark {
+
+	// Lines on src/test/resources/tooling/leyden/commands/logparser/aot.map
+	private static final int LINES = 37953;
+	private static final Path MAP = Path.of("src/test/resources/tooling/leyden/commands/logparser/aot.map");
+
+	private Information information;
+	private AOTMapParser parser;
+	private List<AOTMapParser.MapLine> tokenized;
+
+	@Setup
+	public void setup() throws IOException {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(new DefaultCommand());
+		information = loadFile.getParent().getInformation();
+		parser = new AOTMapParser(loadFile);
+		tokenized = tokenize();
+		if (tokenized.size() != LINES) {
+			throw new IllegalStateException("aot.map has " + tokenized.size() + " lines, update LINES");
+		}
+	}
+
+	// Each load starts from an empty analysis, as the first load of a session does
+	@Setup(Level.Invocation)
+	public void clear() {
+		information.clear();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public List<AOTMapParser.MapLine> tokenize() throws IOException {
+		final var lines = new ArrayList<AOTMapParser.MapLine>(LINES);
+		try (var channel = FileChannel.open(MAP, StandardOpenOption.READ);
+			 var reader = new MappedLineReader(channel, 0, Files.size(MAP), false)) {
+			CharSequence line;
+			while ((line = reader.nextLine()) != null) {
+				lines.add(parser.tokenize(line));
+			}
+		}
+		return lines;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public int apply() {
+		for (AOTMapParser.MapLine line : tokenized) {
+			try {
+				parser.apply(line);
+			} catch (Exception e) {
+				//Same as when loading
+			}
+		}
+		return information.countCached();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public int lineByLine() throws IOException {
+		try (var reader = new MappedLineReader(MAP)) {
+			CharSequence line;
+			while ((line = reader.nextLine()) != null) {
+				try {
+					parser.accept(line);
+				} catch (Exception e) {
+					//Same as when loading
+				}
+			}
+		}
+		return information.countCached();
+	}
+}
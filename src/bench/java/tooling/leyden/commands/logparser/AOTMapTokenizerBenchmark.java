@@ -0,0 +1,89 @@
+package tooling.leyden.commands.logparser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the old regular expression cascade with {@link AOTMapTokenizer} classifying the lines of the
+ * aot.map used on tests. Scores are lines per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AOTMapTokenizerBenchmark {
+
+	// Lines on src/test/resources/tooling/leyden/commands/logparser/aot.map
+	private static final int LINES = 37953;
+
+	private static final String regexpAddress = "(?<address>0[xX][0-9a-fA-F]+)";
+
+	// Same patterns, in the same order, that AOTMapParser used before having its own tokenizer
+	private static final Pattern[] regexCascade = {
+			Pattern.compile(regexpAddress + ": @@ (?<type>\\w+)(?: data)?\\s+"
+					+ "(?<miniaddress>\\(0[xX][0-9a-fA-F]+\\))?"
+					+ "(?<size>\\d+)?\\s*(?<identifier>.*)"),
+			Pattern.compile(" - klass: '(?<class>[\\w+\\/?]+)' " + regexpAddress),
+			Pattern.compile(" - klass: \\{.*\\} " + regexpAddress),
+			Pattern.compile(
+					" - (?<modifiers>[public|protected|private|static|final|transient|volatile|synthetic|injected|\\s]+)'" +
+							"(?<variable>.+)'\\s+'\\[*[\\[|L](?<classname>[^;']+);?'\\s+(?<index>@\\d*+)\\s+\\(?" +
+							regexpAddress + "?\\)?\\s*\\(?(?<miniaddress>0[xX][0-9a-fA-F]+)?\\)?(?<end>.*)"),
+			Pattern.compile(
+					" - (?<modifiers>[public|protected|private|static|final|transient|volatile|synthetic|injected|\\s]+)'" +
+							"(?<variable>.+)'\\s+'(?<classname>[^;']+)'\\s+(?<index>@\\d*+)\\s*(?<value>[^ ]+)\\s*\\(?" +
+							regexpAddress + "?\\)?\\s*\\(?(?<miniaddress>0[xX][0-9a-fA-F]+)?\\)?(?:.*)"),
+			Pattern.compile(" -\\s*\\d+: " + regexpAddress + " .+"),
+			Pattern.compile(" - resolved_references: " + regexpAddress
+					+ "\\s+\\((?<miniaddress>0[xX][0-9a-fA-F]+)?\\)(?:.*)"),
+			Pattern.compile(" root(s)?\\[\\s*\\d+\\]: " + regexpAddress + " \\(0.*\\) (.+)")
+	};
+
+	private List<String> lines;
+
+	@Setup
+	public void setup() throws IOException {
+		lines = Files.readAllLines(Path.of("src/test/resources/tooling/leyden/commands/logparser/aot.map"));
+		if (lines.size() != LINES) {
+			throw new IllegalStateException("aot.map has " + lines.size() + " lines, update LINES");
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void regexCascade(Blackhole bh) {
+		for (String line : lines) {
+			for (Pattern pattern : regexCascade) {
+				final var m = pattern.matcher(line);
+				if (m.matches()) {
+					bh.consume(m.group("address"));
+					break;
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void tokenizer(Blackhole bh) {
+		for (String line : lines) {
+			bh.consume(AOTMapTokenizer.tokenize(line));
+		}
+	}
+}
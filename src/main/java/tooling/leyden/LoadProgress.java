@@ -0,0 +1,87 @@
+package tooling.leyden;
+
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+import tooling.leyden.aotcache.Information;
+
+/**
+ * Progress of a file being loaded, to be shown on the status bar while loading.
+ * It is updated by the loading thread and read by the status bar thread.
+ */
+public class LoadProgress {
+
+	private final String fileName;
+	private final long totalBytes;
+	private final long startTime = System.currentTimeMillis();
+	private final int elementsAtStart;
+
+	private volatile long bytesRead = 0;
+	private volatile long lines = 0;
+
+	/**
+	 * @param totalBytes Size of the file, or -1 if the file is being followed and keeps growing.
+	 */
+	public LoadProgress(String fileName, long totalBytes) {
+		this.fileName = fileName;
+		this.totalBytes = totalBytes;
+		this.elementsAtStart = countElements();
+	}
+
+	/**
+	 * Only one thread should update the progress of a load.
+	 */
+	public void update(long bytesRead, long lines) {
+		this.bytesRead = bytesRead;
+		this.lines = lines;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getLines() {
+		return lines;
+	}
+
+	public AttributedString message() {
+		final long read = bytesRead;
+		final long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+		final long linesPerSecond = lines * 1000 / elapsed;
+
+		AttributedStringBuilder asb = new AttributedStringBuilder();
+		asb.append("Loading " + fileName + ": ");
+		asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN))
+				.append(megabytes(read) + (totalBytes < 0 ? "" : "/" + megabytes(totalBytes)) + " MB");
+		if (totalBytes > 0) {
+			asb.append(" (" + (read * 100 / totalBytes) + "%)");
+		}
+		asb.style(AttributedStyle.DEFAULT).append(" | ");
+		asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN))
+				.append(linesPerSecond + " lines/s");
+		asb.style(AttributedStyle.DEFAULT).append(" | ");
+		asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN))
+				.append(Math.max(0, countElements() - elementsAtStart) + " new elements");
+		asb.style(AttributedStyle.DEFAULT).append(" | ");
+		asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN))
+				.append(totalBytes < 0 ? "following" : "ETA " + eta(read, elapsed));
+		return asb.toAttributedString();
+	}
+
+	private String eta(long read, long elapsed) {
+		if (read <= 0 || totalBytes <= 0) {
+			return "unknown";
+		}
+		final long seconds = (totalBytes - read) * elapsed / read / 1000;
+		return seconds >= 60 ? (seconds / 60) + "m " + (seconds % 60) + "s" : seconds + "s";
+	}
+
+	private static String megabytes(long bytes) {
+		return String.valueOf(Math.round((double) bytes / 1024 / 1024));
+	}
+
+	private static int countElements() {
+		final var information = Information.getMyself();
+		return information.countCached() + information.countExternal();
+	}
+}
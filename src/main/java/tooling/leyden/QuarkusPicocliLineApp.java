@@ -34,6 +34,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
@@ -51,21 +52,34 @@ public class QuarkusPicocliLineApp implements Runnable, QuarkusApplication {
 
     private static List<StatusMessage> statusMessages = Collections.synchronizedList(new ArrayList<>());
 
+    private static List<LoadProgress> loadsInProgress = new CopyOnWriteArrayList<>();
+
     public static void addStatusMessage(StatusMessage sm) {
         statusMessages.add(sm);
     }
 
+    public static void addLoadProgress(LoadProgress progress) {
+        loadsInProgress.add(progress);
+    }
+
+    public static void removeLoadProgress(LoadProgress progress) {
+        loadsInProgress.remove(progress);
+    }
+
     public static void updateStatus() {
         List<AttributedString> statusList = new ArrayList<>();
         statusMessages.removeIf(sm -> sm.timestamp() < System.currentTimeMillis() - 1000 * 10);
         for (StatusMessage sm : statusMessages) {
             statusList.add(sm.message());
         }
+        for (LoadProgress progress : loadsInProgress) {
+            statusList.add(progress.message());
+        }
 
         AttributedStringBuilder asb = new AttributedStringBuilder();
         asb.append("Playground contains: ");
         asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.GREEN))
-                .append(information.getAll().size() + " assets");
+                .append(information.countCached() + " assets");
         asb.style(AttributedStyle.DEFAULT).append(" | ");
         asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.GREEN))
                 .append(information.getAllPackages().size() + " packages");
@@ -0,0 +1,271 @@
+package tooling.leyden.aotcache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Elements by address. Addresses are parsed once into a long and kept on an open addressing table, so looking one up
+ * doesn't hash a String. Range queries use a sorted copy of the addresses, made again only when addresses changed.
+ * <p>
+ * Lookups take no lock: they read the table optimistically and only read it again holding the lock if something was
+ * written meanwhile.
+ */
+final class AddressIndex {
+
+	private static final int INITIAL_CAPACITY = 1 << 12;
+
+	private final StampedLock lock = new StampedLock();
+
+	// Zero means empty, the element at address zero (if any) has its own field
+	private Table table = new Table(INITIAL_CAPACITY);
+	private Element atZero;
+	private int size = 0;
+
+	// Addresses with the sign bit flipped, so sorting them as signed longs sorts the addresses as unsigned.
+	// Made holding the read lock, more than one range query may be making it
+	private volatile long[] sorted;
+
+	/**
+	 * Parses addresses like 0x0000000800868d58, with or without 0x.
+	 *
+	 * @throws NumberFormatException if it is not an hexadecimal number.
+	 */
+	static long parse(String address) {
+		final int start = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+		final int length = address.length() - start;
+		if (length < 1 || length > 16) {
+			throw new NumberFormatException("Not an address: " + address);
+		}
+		long result = 0;
+		for (int i = start; i < address.length(); i++) {
+			final int digit = Character.digit(address.charAt(i), 16);
+			if (digit < 0) {
+				throw new NumberFormatException("Not an address: " + address);
+			}
+			result = (result << 4) | digit;
+		}
+		return result;
+	}
+
+	Element get(long address) {
+		final long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			// May be halfway through a write, what it finds only counts if nothing was written
+			final var found = find(address);
+			if (lock.validate(stamp)) {
+				return found;
+			}
+		}
+		final long read = lock.readLock();
+		try {
+			return find(address);
+		} finally {
+			lock.unlockRead(read);
+		}
+	}
+
+	private Element find(long address) {
+		if (address == 0) {
+			return atZero;
+		}
+		final var t = table;
+		final long[] keys = t.keys;
+		final int mask = keys.length - 1;
+		// Bounded, a write going on could leave no empty slot on the way
+		int i = slot(address, mask);
+		for (int probes = 0; probes < keys.length && keys[i] != 0; probes++) {
+			if (keys[i] == address) {
+				return t.values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * @return The element that was already on this address, or null if this one was added.
+	 */
+	Element putIfAbsent(long address, Element e) {
+		final long stamp = lock.writeLock();
+		try {
+			return add(address, e);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private Element add(long address, Element e) {
+		if (address == 0) {
+			if (atZero != null) {
+				return atZero;
+			}
+			atZero = e;
+			size++;
+			sorted = null;
+			return null;
+		}
+		if ((size + 1) * 2 > table.keys.length) {
+			resize(table.keys.length * 2);
+		}
+		final long[] keys = table.keys;
+		final int mask = keys.length - 1;
+		int i = slot(address, mask);
+		for (; keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == address) {
+				return table.values[i];
+			}
+		}
+		keys[i] = address;
+		table.values[i] = e;
+		size++;
+		sorted = null;
+		return null;
+	}
+
+	void remove(long address) {
+		final long stamp = lock.writeLock();
+		try {
+			delete(address);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private void delete(long address) {
+		if (address == 0) {
+			if (atZero != null) {
+				atZero = null;
+				size--;
+				sorted = null;
+			}
+			return;
+		}
+		final long[] keys = table.keys;
+		final Element[] values = table.values;
+		final int mask = keys.length - 1;
+		int i = slot(address, mask);
+		while (keys[i] != address) {
+			if (keys[i] == 0) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		size--;
+		sorted = null;
+		// Move back the entries after it that would not be found with the hole
+		int hole = i;
+		for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+			final int home = slot(keys[j], mask);
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		keys[hole] = 0;
+		values[hole] = null;
+	}
+
+	/**
+	 * Elements with an address between these two, both included, sorted by address.
+	 */
+	List<Element> range(long from, long to) {
+		final long stamp = lock.readLock();
+		try {
+			var sorted = this.sorted;
+			if (sorted == null) {
+				sorted = new long[size];
+				int n = 0;
+				if (atZero != null) {
+					sorted[n++] = Long.MIN_VALUE;
+				}
+				for (long key : table.keys) {
+					if (key != 0) {
+						sorted[n++] = key ^ Long.MIN_VALUE;
+					}
+				}
+				Arrays.sort(sorted);
+				this.sorted = sorted;
+			}
+			final var result = new ArrayList<Element>();
+			int i = Arrays.binarySearch(sorted, from ^ Long.MIN_VALUE);
+			if (i < 0) {
+				i = -i - 1;
+			}
+			final long last = to ^ Long.MIN_VALUE;
+			for (; i < sorted.length && sorted[i] <= last; i++) {
+				result.add(find(sorted[i] ^ Long.MIN_VALUE));
+			}
+			return result;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	List<String> addresses() {
+		final long stamp = lock.readLock();
+		try {
+			final var result = new ArrayList<String>(size);
+			if (atZero != null) {
+				result.add(atZero.getAddress());
+			}
+			for (Element value : table.values) {
+				if (value != null) {
+					result.add(value.getAddress());
+				}
+			}
+			return result;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	void clear() {
+		final long stamp = lock.writeLock();
+		try {
+			table = new Table(INITIAL_CAPACITY);
+			atZero = null;
+			size = 0;
+			sorted = null;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// The old table is left as it was, optimistic reads still going through it find what they would have found
+	private void resize(int capacity) {
+		final var old = table;
+		final var resized = new Table(capacity);
+		final int mask = capacity - 1;
+		for (int j = 0; j < old.keys.length; j++) {
+			if (old.keys[j] != 0) {
+				int i = slot(old.keys[j], mask);
+				while (resized.keys[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				resized.keys[i] = old.keys[j];
+				resized.values[i] = old.values[j];
+			}
+		}
+		table = resized;
+	}
+
+	// Keys and values together, so a read never pairs the keys of a table with the values of another
+	private static final class Table {
+		final long[] keys;
+		final Element[] values;
+
+		Table(int capacity) {
+			keys = new long[capacity];
+			values = new Element[capacity];
+		}
+	}
+
+	// Addresses are aligned, so low bits alone would cluster
+	private static int slot(long address, int mask) {
+		final long h = address * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+}
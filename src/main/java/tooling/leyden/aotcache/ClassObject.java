@@ -21,6 +21,8 @@ public class ClassObject extends ReferencingElement {
 	private Element klassTrainingData;
 	private List<ReferencingElement> symbols = new ArrayList<>();
 	private Boolean isClassLoader = false;
+	// Name and package only change while the class is being created
+	private volatile String key;
 
 	ClassObject(String identifier) {
 		super(identifier, "Class");
@@ -40,12 +42,26 @@ public class ClassObject extends ReferencingElement {
 		}
 	}
 
+	// Restores a saved class, see SnapshotFile
+	ClassObject(String name, String packageName, String arrayPrefix, boolean isClassLoader) {
+		super(name, "Class");
+		this.name = StringPool.intern(name);
+		this.packageName = StringPool.intern(packageName);
+		this.arrayPrefix = StringPool.intern(arrayPrefix);
+		this.isClassLoader = isClassLoader;
+	}
+
 	public String getType() {
 		return "Class";
 	}
 
 	public String getKey() {
-		return arrayPrefix + (getPackageName().isBlank() ? "" : getPackageName() + ".") + getName();
+		var key = this.key;
+		if (key == null) {
+			key = arrayPrefix + (getPackageName().isBlank() ? "" : getPackageName() + ".") + getName();
+			this.key = key;
+		}
+		return key;
 	}
 
 	public String getName() {
@@ -69,15 +85,27 @@ public class ClassObject extends ReferencingElement {
 	}
 
 	public void addSymbol(ReferencingElement symbol) {
-		if (!this.getSymbols().contains(symbol)) {
-			this.getSymbols().add(symbol);
-			this.getSymbols().sort(Comparator.comparing(Element::getKey));
+		final boolean added;
+		synchronized (this) {
+			added = !this.getSymbols().contains(symbol);
+			if (added) {
+				this.getSymbols().add(symbol);
+				this.getSymbols().sort(Comparator.comparing(Element::getKey));
+			}
+		}
+		if (added) {
+			Information.changed(this, () -> {
+				synchronized (this) {
+					this.symbols.remove(symbol);
+				}
+			});
 		}
 		symbol.markAsReferenced(this);
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		this.key = null;
 	}
 
 	public Element getKlassTrainingData() {
@@ -85,7 +113,12 @@ public class ClassObject extends ReferencingElement {
 	}
 
 	public void setKlassTrainingData(Element klassTrainingData) {
+		final var previous = this.klassTrainingData;
 		this.klassTrainingData = klassTrainingData;
+		Information.indexChanged(this);
+		if (previous != klassTrainingData) {
+			Information.changed(this, () -> setKlassTrainingData(previous));
+		}
 	}
 
 	public void setPackageName(String packageName) {
@@ -98,18 +131,36 @@ public class ClassObject extends ReferencingElement {
 				packageName = packageName.substring(1);
 			}
 		}
-		this.packageName = packageName;
+		this.packageName = StringPool.intern(packageName);
+		this.key = null;
 	}
 
 	public void addMethod(MethodObject method) {
-		if (!this.methods.contains(method)) {
-			this.methods.add(method);
+		final boolean added;
+		synchronized (this) {
+			added = !this.methods.contains(method);
+			if (added) {
+				this.methods.add(method);
+			}
+		}
+		if (added) {
+			Information.changed(this, () -> {
+				synchronized (this) {
+					this.methods.remove(method);
+				}
+			});
 			method.setClassObject(this);
-			this.getMethods().sort(Comparator.comparing(Element::isTrained).thenComparing(Element::getKey));
+			synchronized (this) {
+				this.getMethods().sort(Comparator.comparing(Element::isTrained).thenComparing(Element::getKey));
+			}
 		}
 		method.markAsReferenced(this);
 	}
 
+	String getArrayPrefix() {
+		return arrayPrefix;
+	}
+
 	public Boolean isArray() {
 		return !this.arrayPrefix.isBlank();
 	}
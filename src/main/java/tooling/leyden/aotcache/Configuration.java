@@ -19,14 +19,21 @@ public class Configuration {
 					new AttributedString("Rewriting value for '" + key + "' previously it was '" + configuration.get(key) + "'.",
 							AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
 		}
-		configuration.put(key.trim(), value);
+		final var trimmed = key.trim();
+		final var previous = configuration.put(trimmed, value);
+		Information.changed(() -> {
+			if (previous == null) {
+				configuration.remove(trimmed, value);
+			} else {
+				configuration.replace(trimmed, value, previous);
+			}
+		});
 	}
 
 	public void incrementValue(String key) {
-		if (!configuration.containsKey(key)) {
-			configuration.put(key, 0);
-		}
-		configuration.compute(key, (k, val) -> ((Integer)val) + 1);
+		configuration.merge(key, 1, (val, one) -> ((Integer) val) + 1);
+		Information.changed(() -> configuration.computeIfPresent(key,
+				(k, val) -> val instanceof Integer i && i > 1 ? i - 1 : null));
 	}
 
 	public Object getValue(String key) {
@@ -31,9 +31,15 @@ public class ConstantPoolObject extends Element {
 
 	public void setPoolHolder(ClassObject poolHolder) {
 		this.poolHolder = poolHolder;
+		Information.indexChanged(this);
 		poolHolder.markAsReferenced(this);
 	}
 
+	// Without marking the class as referenced, for SnapshotFile
+	void restorePoolHolder(ClassObject poolHolder) {
+		this.poolHolder = poolHolder;
+	}
+
 	@Override
 	public String getKey() {
 		return key;
@@ -7,13 +7,13 @@ import org.jline.utils.AttributedStyle;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * Elements that can be found on the Information.
+ * Several files may be loaded at the same time, so methods that modify the element are synchronized. They never call
+ * other elements while holding the lock, to avoid deadlocks between elements referencing each other.
  **/
 public abstract class Element {
 
@@ -22,7 +22,13 @@ public abstract class Element {
 	private WhichRun loaded = WhichRun.None;
 	private List<String> whereDoesItComeFrom = new ArrayList<>();
 	private List<String> source = new ArrayList<>();
-	private Set<Element> whoReferencesMe = new HashSet<>();
+	// Position on the ReferenceGraph, if it is already there
+	int graphId = -1;
+	// Elements that marked this one as referenced, waiting to be moved to the ReferenceGraph
+	ReferenceGraph.Edges pendingReferencedBy;
+	boolean onGraphQueue = false;
+	// Position on the ElementIndex of the Information
+	int indexId = -1;
 	/**
 	 * Address where an element can be found
 	 */
@@ -33,7 +39,12 @@ public abstract class Element {
 	}
 
 	public void setHeapRoot(Boolean heapRoot) {
+		final var previous = isHeapRoot;
 		isHeapRoot = heapRoot;
+		Information.indexChanged(this);
+		if (!Objects.equals(previous, heapRoot)) {
+			Information.changed(this, () -> setHeapRoot(previous));
+		}
 	}
 
 	/**
@@ -46,7 +57,10 @@ public abstract class Element {
 	}
 
 	public final void addWhereDoesItComeFrom(String whereDoesItComeFrom) {
-		this.whereDoesItComeFrom.add(whereDoesItComeFrom);
+		synchronized (this) {
+			this.whereDoesItComeFrom.add(whereDoesItComeFrom);
+		}
+		Information.changed(this, () -> removeLast(this.whereDoesItComeFrom, whereDoesItComeFrom));
 	}
 
 	/**
@@ -59,7 +73,7 @@ public abstract class Element {
 	}
 
 	public void setType(String type) {
-		this.type = type;
+		this.type = StringPool.intern(type);
 	}
 
 	/**
@@ -129,12 +143,13 @@ public abstract class Element {
 	}
 
 	public Collection<Element> getWhoReferencesMe() {
-		return whoReferencesMe;
+		return Information.getMyself().getReferenceGraph().getWhoReferences(this);
 	}
 
 	public final void markAsReferenced(Element e) {
 		if (e != this) {
-			this.whoReferencesMe.add(e);
+			Information.getMyself().getReferenceGraph().addReferencedBy(this, e);
+			Information.referencedByAdded(this, e);
 		}
 	}
 
@@ -147,9 +162,21 @@ public abstract class Element {
 
 
 	public void addSource(String source) {
-		if (!this.source.contains(source)) {
+		synchronized (this) {
+			if (this.source.contains(source)) {
+				return;
+			}
 			this.source.add(source);
 		}
+		Information.changed(this, () -> removeLast(this.source, source));
+	}
+
+	// Undoes adding the value, see Information#rollback
+	private synchronized void removeLast(List<String> values, String value) {
+		final int i = values.lastIndexOf(value);
+		if (i >= 0) {
+			values.remove(i);
+		}
 	}
 
 	/**
@@ -167,11 +194,24 @@ public abstract class Element {
 	}
 
 	public void setLoaded(WhichRun loaded) {
-		if ((loaded == WhichRun.Production && this.loaded == WhichRun.Training)
-				|| (this.loaded == WhichRun.Production && loaded == WhichRun.Training)) {
-			this.loaded = WhichRun.Both;
-		} else if (this.loaded != WhichRun.Both){
-			this.loaded = loaded;
+		final WhichRun previous;
+		synchronized (this) {
+			previous = this.loaded;
+			if ((loaded == WhichRun.Production && this.loaded == WhichRun.Training)
+					|| (this.loaded == WhichRun.Production && loaded == WhichRun.Training)) {
+				this.loaded = WhichRun.Both;
+			} else if (this.loaded != WhichRun.Both) {
+				this.loaded = loaded;
+			}
+		}
+		Information.indexChanged(this);
+		if (previous != this.loaded) {
+			Information.changed(this, () -> {
+				synchronized (this) {
+					this.loaded = previous;
+				}
+				Information.indexChanged(this);
+			});
 		}
 	}
 
@@ -225,6 +265,8 @@ public abstract class Element {
 
 	@Override
 	public final boolean equals(Object o) {
+		if (this == o)
+			return true;
 		if (!(o instanceof Element element))
 			return false;
 
@@ -1,14 +1,9 @@
 package tooling.leyden.aotcache;
 
-import java.util.function.Supplier;
-
 public class ElementFactory {
 
 	public static Element getOrCreate(String identifier, String type, String address) {
-		return Information.getMyself()
-				.getElements(identifier, null, null, true, true, type)
-				.findAny()
-				.orElseGet(() -> getElement(identifier, type, address));
+		return Information.getMyself().getOrCreate(identifier, type, () -> getElement(identifier, type, address));
 	}
 
 	private static Element getElement(String identifier, String type, String address) {
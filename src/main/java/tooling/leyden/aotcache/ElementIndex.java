@@ -0,0 +1,496 @@
+package tooling.leyden.aotcache;
+
+import tooling.leyden.commands.CommonParameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Bitmaps of the elements on the {@link Information} for each attribute we filter by, kept up to date while loading.
+ * Queries intersect them before looking at the elements one by one, and only check on each element the filters
+ * that have no bitmap.
+ * <p>
+ * Only whether an element is cached or not, and whether it can be in a package, cover most elements. Those are plain
+ * bitmaps, the rest are {@link IdSet}s so a value that few elements have takes little memory. Removed elements leave
+ * their id unused, ids are given again once enough of them are unused.
+ */
+final class ElementIndex {
+
+	private Element[] elements = new Element[1024];
+	// What each element was indexed with, to move it if it changes
+	private Attributes[] attributes = new Attributes[1024];
+	private int size = 0;
+	// Ids of elements that are neither cached nor not cached anymore
+	private int unused = 0;
+	// Times ids were given again, selections made before have the old ids
+	private int compactions = 0;
+
+	private BitSet cached = new BitSet();
+	private BitSet notCached = new BitSet();
+	private final Map<String, IdSet> byType = new HashMap<>();
+	// Classes and methods by their package, heap objects by the package of their class, constant pools by the package of
+	// the class they belong to, training data by the packages of what it references
+	private final PackageTrie packages = new PackageTrie();
+	// Elements that can match a package at all, the rest never do
+	private BitSet withPackage = new BitSet();
+	private final Map<Element.WhichRun, IdSet> byLoaded = new EnumMap<>(Element.WhichRun.class);
+	private IdSet trained = new IdSet();
+	private IdSet heapRoots = new IdSet();
+	private IdSet arrays = new IdSet();
+	private IdSet lambdas = new IdSet();
+	private IdSet innerClasses = new IdSet();
+	private IdSet instances = new IdSet();
+	private IdSet aotInited = new IdSet();
+	// Class keys in lower case, the filter ignores case
+	private final Map<String, IdSet> byInstanceOf = new HashMap<>();
+
+	void add(Element e, boolean isCached) {
+		final var current = Attributes.of(e);
+		final var referencedPackages = new ArrayList<String>();
+		if (hasReferencedPackages(e)) {
+			((ReferencingElement) e).forEachReference(reference -> referencedPackages.add(packageOf(reference)));
+		}
+		synchronized (this) {
+			final boolean known = contains(e);
+			final int id = idOf(e);
+			if (known && !cached.get(id) && !notCached.get(id)) {
+				// Added again after being removed
+				unused--;
+			}
+			(isCached ? cached : notCached).set(id);
+			byType.computeIfAbsent(e.getType(), t -> new IdSet()).add(id);
+			withPackage.set(id, hasReferencedPackages(e));
+			set(id, current);
+			referencedPackages.forEach(packageName -> addPackage(id, packageName));
+		}
+	}
+
+	synchronized void remove(Element e, boolean fromCached) {
+		final var from = fromCached ? cached : notCached;
+		if (contains(e) && from.get(e.indexId)) {
+			from.clear(e.indexId);
+			if (!cached.get(e.indexId) && !notCached.get(e.indexId)) {
+				unused++;
+			}
+		}
+	}
+
+	/**
+	 * Something we filter by changed on the element.
+	 */
+	void update(Element e) {
+		if (e.indexId < 0) {
+			// Not added yet, it gets indexed when it is
+			return;
+		}
+		final var current = Attributes.of(e);
+		synchronized (this) {
+			if (contains(e)) {
+				set(e.indexId, current);
+			}
+		}
+	}
+
+	/**
+	 * Training data matches the packages of the classes and methods it references.
+	 */
+	void addReference(Element e, Element reference) {
+		if (e.indexId < 0 || !hasReferencedPackages(e)) {
+			// Not added yet, its references get indexed when it is
+			return;
+		}
+		final var packageName = packageOf(reference);
+		synchronized (this) {
+			if (contains(e)) {
+				addPackage(e.indexId, packageName);
+			}
+		}
+	}
+
+	synchronized void clear() {
+		elements = new Element[1024];
+		attributes = new Attributes[1024];
+		size = 0;
+		unused = 0;
+		cached = new BitSet();
+		notCached = new BitSet();
+		byType.clear();
+		packages.clear();
+		withPackage = new BitSet();
+		byLoaded.clear();
+		trained = new IdSet();
+		heapRoots = new IdSet();
+		arrays = new IdSet();
+		lambdas = new IdSet();
+		innerClasses = new IdSet();
+		instances = new IdSet();
+		aotInited = new IdSet();
+		byInstanceOf.clear();
+	}
+
+	/**
+	 * Plans the query for these parameters and runs the bitmap part of it.
+	 */
+	synchronized Selection select(CommonParameters parameters) {
+		final var steps = new ArrayList<String>();
+		final var pending = EnumSet.noneOf(Information.Filter.class);
+
+		final var result = new BitSet();
+		if (parameters.getUse() != CommonParameters.ElementsToUse.notCached) {
+			result.or(cached);
+		}
+		if (parameters.getUse() != CommonParameters.ElementsToUse.cached) {
+			result.or(notCached);
+		}
+		steps.add(step("--use " + parameters.getUse(), result));
+
+		final var types = parameters.getTypes();
+		if (types != null && types.length > 0) {
+			final var ofTypes = new BitSet();
+			byType.forEach((type, ids) -> {
+				if (Arrays.stream(types).anyMatch(type::equalsIgnoreCase)) {
+					ids.orInto(ofTypes);
+				}
+			});
+			result.and(ofTypes);
+			steps.add(step("--type " + String.join(",", types), result));
+		}
+
+		if (parameters.isHeapRoot() != null) {
+			if (parameters.isHeapRoot()) {
+				heapRoots.retainIn(result);
+			} else {
+				heapRoots.removeFrom(result);
+			}
+			steps.add(step("--showHeapRoot " + parameters.isHeapRoot(), result));
+		}
+
+		if (parameters.getShowAOTInited() != null) {
+			// Only instances are filtered out
+			final var discarded = new BitSet();
+			instances.orInto(discarded);
+			if (parameters.getShowAOTInited()) {
+				aotInited.removeFrom(discarded);
+			} else {
+				aotInited.retainIn(discarded);
+			}
+			result.andNot(discarded);
+			steps.add(step("--showAOTInited " + parameters.getShowAOTInited(), result));
+		}
+
+		if (!parameters.useArrays()) {
+			arrays.removeFrom(result);
+			steps.add(step("--showArrays false", result));
+		}
+
+		if (parameters.getTrained()) {
+			trained.retainIn(result);
+			steps.add(step("--trained", result));
+		}
+
+		if (!parameters.getLambdas()) {
+			lambdas.removeFrom(result);
+			steps.add(step("--lambdas false", result));
+		}
+
+		if (!parameters.getInnerClasses()) {
+			innerClasses.removeFrom(result);
+			steps.add(step("--innerClasses false", result));
+		}
+
+		if (parameters.getInstanceOf() != null) {
+			byInstanceOf.getOrDefault(parameters.getInstanceOf().toLowerCase(), new IdSet()).retainIn(result);
+			steps.add(step("--instanceOf " + parameters.getInstanceOf(), result));
+		}
+
+		final var run = switch (parameters.getLoaded()) {
+			case training -> Element.WhichRun.Training;
+			case production -> Element.WhichRun.Production;
+			case both -> Element.WhichRun.Both;
+			case none -> Element.WhichRun.None;
+			case all -> null;
+		};
+		if (run != null) {
+			byType.getOrDefault("Class", new IdSet()).retainIn(result);
+			byLoaded.getOrDefault(run, new IdSet()).retainIn(result);
+			if (run == Element.WhichRun.Training) {
+				arrays.removeFrom(result);
+			}
+			steps.add(step("--loaded " + parameters.getLoaded(), result));
+		}
+
+		// Elements that don't belong to any package are neither in nor out of one
+		final var packageName = parameters.getPackageName();
+		if (packageName != null && packageName.length > 0) {
+			result.and(inPackages(packageName));
+			steps.add(step("--packageName " + String.join(",", packageName), result));
+		}
+		final var excludePackageName = parameters.getExcludePackageName();
+		if (excludePackageName != null && excludePackageName.length > 0) {
+			result.and(withPackage);
+			result.andNot(inPackages(excludePackageName));
+			steps.add(step("--excludePackageName " + String.join(",", excludePackageName), result));
+		}
+
+		if (parameters.getReferencing() != null) {
+			pending.add(Information.Filter.REFERENCING);
+		}
+
+		final var predicates = new ArrayList<String>();
+		if (parameters.getName() != null && !parameters.getName().isBlank()) {
+			predicates.add("--identifier " + parameters.getName());
+		}
+		pending.forEach(filter -> predicates.add(filter.toString()));
+		return new Selection(result, elements, compactions, pending,
+				new QueryPlan(steps, predicates, result.cardinality()));
+	}
+
+	/**
+	 * How many of these elements there are of each type.
+	 */
+	synchronized Map<String, Integer> countByType(Selection selection) {
+		final var result = new HashMap<String, Integer>();
+		if (selection.compactions() != compactions) {
+			selection.stream().forEach(e -> result.merge(e.getType(), 1, Integer::sum));
+			return result;
+		}
+		byType.forEach((type, ofType) -> {
+			final int count = ofType.countIn(selection.ids());
+			if (count > 0) {
+				result.put(type, count);
+			}
+		});
+		return result;
+	}
+
+	private static String step(String operation, BitSet result) {
+		return operation + " -> " + result.cardinality();
+	}
+
+	private BitSet inPackages(String[] prefixes) {
+		final var result = new BitSet();
+		for (String prefix : prefixes) {
+			result.or(packages.startingWith(prefix));
+		}
+		return result;
+	}
+
+	private void addPackage(int id, String packageName) {
+		if (packageName != null) {
+			packages.add(packageName, id);
+		}
+	}
+
+	// Same types Information#filterByParams matches through their references
+	private static boolean hasReferencedPackages(Element e) {
+		return e.getType().endsWith("TrainingData")
+				|| e.getType().equalsIgnoreCase("MethodData")
+				|| e.getType().equalsIgnoreCase("MethodCounters");
+	}
+
+	/**
+	 * Package of the class of a heap object, or of the class a constant pool belongs to. Null if we don't know the
+	 * class of the object.
+	 */
+	static String packageNameOf(Element e) {
+		if (e instanceof InstanceObject instanceObject) {
+			return instanceObject.getInstanceOf() != null ? instanceObject.getInstanceOf().getPackageName() : null;
+		}
+		if (e instanceof ConstantPoolObject constantPool) {
+			if (constantPool.getPoolHolder() != null) {
+				return constantPool.getPoolHolder().getPackageName();
+			}
+			// Its key is the name of the class
+			final int lastDot = constantPool.getKey().lastIndexOf('.');
+			return lastDot < 0 ? "" : constantPool.getKey().substring(0, lastDot);
+		}
+		return null;
+	}
+
+	private static String packageOf(Element reference) {
+		if (reference instanceof ClassObject classObject) {
+			return classObject.getPackageName();
+		}
+		if (reference instanceof MethodObject methodObject && methodObject.getClassObject() != null) {
+			return methodObject.getClassObject().getPackageName();
+		}
+		return null;
+	}
+
+	private void set(int id, Attributes current) {
+		final var previous = attributes[id];
+		attributes[id] = current;
+		if (previous != null && previous.packageName() != null
+				&& !previous.packageName().equals(current.packageName())) {
+			packages.remove(previous.packageName(), id);
+		}
+		addPackage(id, current.packageName());
+		if (current.packageName() != null) {
+			// Heap objects only have one once we know their class
+			withPackage.set(id);
+		}
+		move(byInstanceOf, id, previous == null ? null : previous.instanceOf(), current.instanceOf());
+		for (Element.WhichRun run : Element.WhichRun.values()) {
+			byLoaded.computeIfAbsent(run, r -> new IdSet()).set(id, run == current.loaded());
+		}
+		trained.set(id, current.trained());
+		heapRoots.set(id, current.heapRoot());
+		arrays.set(id, current.array());
+		lambdas.set(id, current.lambda());
+		innerClasses.set(id, current.innerClass());
+		instances.set(id, current.aotInited() != null);
+		aotInited.set(id, Boolean.TRUE.equals(current.aotInited()));
+	}
+
+	private static void move(Map<String, IdSet> sets, int id, String previous, String current) {
+		if (previous != null) {
+			sets.get(previous).remove(id);
+		}
+		if (current != null) {
+			sets.computeIfAbsent(current, k -> new IdSet()).add(id);
+		}
+	}
+
+	private boolean contains(Element e) {
+		final int id = e.indexId;
+		return id >= 0 && id < size && elements[id] == e;
+	}
+
+	private int idOf(Element e) {
+		if (contains(e)) {
+			return e.indexId;
+		}
+		// Streams already running keep reading the old array, so it is copied instead of written when full
+		if (size == elements.length) {
+			if (unused >= size / 4) {
+				compact();
+			} else {
+				elements = Arrays.copyOf(elements, size * 2);
+				attributes = Arrays.copyOf(attributes, size * 2);
+			}
+		}
+		elements[size] = e;
+		e.indexId = size;
+		return size++;
+	}
+
+	// Gives new ids to the elements still there, in the same order, so the unused ones can be given again
+	private void compact() {
+		final int[] mapping = new int[size];
+		final var compacted = new Element[elements.length];
+		final var compactedAttributes = new Attributes[attributes.length];
+		int next = 0;
+		for (int id = 0; id < size; id++) {
+			if (cached.get(id) || notCached.get(id)) {
+				mapping[id] = next;
+				compacted[next] = elements[id];
+				compactedAttributes[next] = attributes[id];
+				elements[id].indexId = next++;
+			} else {
+				mapping[id] = -1;
+				// Not on the information anymore, it gets a new id if it is added again
+				elements[id].indexId = -1;
+			}
+		}
+		cached = remap(cached, mapping);
+		notCached = remap(notCached, mapping);
+		withPackage = remap(withPackage, mapping);
+		remap(byType, mapping);
+		remap(byLoaded, mapping);
+		remap(byInstanceOf, mapping);
+		trained = trained.remap(mapping);
+		heapRoots = heapRoots.remap(mapping);
+		arrays = arrays.remap(mapping);
+		lambdas = lambdas.remap(mapping);
+		innerClasses = innerClasses.remap(mapping);
+		instances = instances.remap(mapping);
+		aotInited = aotInited.remap(mapping);
+		packages.remap(mapping);
+		// Streams already running keep the old ids and the old array
+		elements = compacted;
+		attributes = compactedAttributes;
+		size = next;
+		unused = 0;
+		compactions++;
+	}
+
+	private static BitSet remap(BitSet ids, int[] mapping) {
+		final var result = new BitSet();
+		ids.stream().filter(id -> mapping[id] >= 0).forEach(id -> result.set(mapping[id]));
+		return result;
+	}
+
+	private static <K> void remap(Map<K, IdSet> sets, int[] mapping) {
+		sets.replaceAll((key, ids) -> ids.remap(mapping));
+		sets.values().removeIf(IdSet::isEmpty);
+	}
+
+	/**
+	 * Result of {@link #select(CommonParameters)}.
+	 *
+	 * @param ids      Elements that may match.
+	 * @param elements Elements by id when selected.
+	 * @param pending  Filters still to check on each of them.
+	 */
+	record Selection(BitSet ids, Element[] elements, int compactions, Set<Information.Filter> pending,
+					 QueryPlan plan) {
+
+		Stream<Element> stream() {
+			return ids.stream().mapToObj(id -> elements[id]);
+		}
+
+		/**
+		 * Whether the element may match. Elements that got a new id after selecting them don't.
+		 */
+		boolean contains(Element e) {
+			final int id = e.indexId;
+			return id >= 0 && id < elements.length && ids.get(id) && elements[id] == e;
+		}
+	}
+
+	/**
+	 * Values of an element for the attributes we keep bitmaps of.
+	 *
+	 * @param packageName What package filters compare with, unless it is matched through its references.
+	 * @param aotInited   Null if the element is not an instance.
+	 */
+	private record Attributes(String packageName, Element.WhichRun loaded, boolean trained, boolean heapRoot,
+							  boolean array, boolean lambda, boolean innerClass, Boolean aotInited,
+							  String instanceOf) {
+
+		static Attributes of(Element e) {
+			String packageName = null;
+			boolean array = false;
+			boolean lambda = false;
+			boolean innerClass = false;
+			Boolean aotInited = null;
+			String instanceOf = null;
+			if (e instanceof ClassObject classObject) {
+				packageName = classObject.getPackageName();
+				array = classObject.isArray();
+				lambda = classObject.getName().contains("$$Lambda");
+				innerClass = classObject.getName().contains("$");
+			} else if (e instanceof MethodObject methodObject) {
+				packageName = methodObject.getClassObject() != null ?
+						methodObject.getClassObject().getPackageName() : methodObject.getName();
+			} else if (e.getType().equals("Object") || e.getType().startsWith("ConstantPool")) {
+				packageName = packageNameOf(e);
+			}
+			if (e instanceof InstanceObject instanceObject) {
+				aotInited = Boolean.TRUE.equals(instanceObject.isAOTinited());
+				if (instanceObject.getInstanceOf() != null) {
+					instanceOf = instanceObject.getInstanceOf().getKey().toLowerCase();
+				}
+			}
+			return new Attributes(packageName, e.wasLoaded(), e.isTraineable() && e.isTrained(), e.isHeapRoot(),
+					array, lambda, innerClass, aotInited, instanceOf);
+		}
+	}
+}
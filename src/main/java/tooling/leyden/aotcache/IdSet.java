@@ -0,0 +1,237 @@
+package tooling.leyden.aotcache;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Element ids, compressed the way roaring bitmaps are: ids are split in chunks of 65536 by their high bits, and each
+ * chunk keeps a sorted array of its low bits until a bitmap of the chunk is smaller. A set with a few ids spread over
+ * a big index takes a few bytes per id, instead of a bit for each element on the index.
+ * Queries work on a {@link BitSet}, sets are added to it when queried.
+ * Not thread safe, {@link ElementIndex} guards it.
+ */
+final class IdSet {
+
+	// Same size as a bitmap of the chunk
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int WORDS = 1 << 10;
+
+	// High bits of the chunks, sorted
+	private int[] keys = new int[0];
+	private Chunk[] chunks = new Chunk[0];
+	private int size = 0;
+	private int cardinality = 0;
+
+	boolean add(int id) {
+		int i = find(id >>> 16);
+		if (i < 0) {
+			i = -i - 1;
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+				chunks = Arrays.copyOf(chunks, keys.length);
+			}
+			System.arraycopy(keys, i, keys, i + 1, size - i);
+			System.arraycopy(chunks, i, chunks, i + 1, size - i);
+			keys[i] = id >>> 16;
+			chunks[i] = new Chunk();
+			size++;
+		}
+		if (chunks[i].add((char) id)) {
+			cardinality++;
+			return true;
+		}
+		return false;
+	}
+
+	boolean remove(int id) {
+		final int i = find(id >>> 16);
+		if (i < 0 || !chunks[i].remove((char) id)) {
+			return false;
+		}
+		cardinality--;
+		if (chunks[i].count == 0) {
+			System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+			System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+			chunks[--size] = null;
+		}
+		return true;
+	}
+
+	void set(int id, boolean value) {
+		if (value) {
+			add(id);
+		} else {
+			remove(id);
+		}
+	}
+
+	boolean contains(int id) {
+		final int i = find(id >>> 16);
+		return i >= 0 && chunks[i].contains((char) id);
+	}
+
+	int cardinality() {
+		return cardinality;
+	}
+
+	boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * Adds the ids of this set to the bitmap.
+	 */
+	void orInto(BitSet target) {
+		forEach(target::set);
+	}
+
+	/**
+	 * Leaves on the bitmap only the ids of this set.
+	 */
+	void retainIn(BitSet target) {
+		final var ids = new BitSet();
+		orInto(ids);
+		target.and(ids);
+	}
+
+	/**
+	 * Removes the ids of this set from the bitmap.
+	 */
+	void removeFrom(BitSet target) {
+		forEach(target::clear);
+	}
+
+	/**
+	 * How many ids of this set are on the bitmap.
+	 */
+	int countIn(BitSet ids) {
+		final int[] count = {0};
+		forEach(id -> {
+			if (ids.get(id)) {
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+
+	/**
+	 * The same ids, each one replaced by its position on this mapping. Ids mapped to a negative number are left out.
+	 */
+	IdSet remap(int[] mapping) {
+		final var result = new IdSet();
+		forEach(id -> {
+			if (id < mapping.length && mapping[id] >= 0) {
+				result.add(mapping[id]);
+			}
+		});
+		return result;
+	}
+
+	void forEach(IntConsumer action) {
+		for (int i = 0; i < size; i++) {
+			chunks[i].forEach(keys[i] << 16, action);
+		}
+	}
+
+	private int find(int key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * 65536 ids sharing their high bits: a sorted array of their low bits, or a bitmap once it is dense.
+	 */
+	private static final class Chunk {
+		private char[] values = new char[4];
+		private long[] bits;
+		private int count;
+
+		boolean add(char low) {
+			if (bits != null) {
+				final long bit = 1L << low;
+				if ((bits[low >>> 6] & bit) != 0) {
+					return false;
+				}
+				bits[low >>> 6] |= bit;
+				count++;
+				return true;
+			}
+			int i = Arrays.binarySearch(values, 0, count, low);
+			if (i >= 0) {
+				return false;
+			}
+			i = -i - 1;
+			if (count == ARRAY_LIMIT) {
+				toBits();
+				return add(low);
+			}
+			if (count == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, count * 2));
+			}
+			System.arraycopy(values, i, values, i + 1, count - i);
+			values[i] = low;
+			count++;
+			return true;
+		}
+
+		boolean remove(char low) {
+			if (bits != null) {
+				final long bit = 1L << low;
+				if ((bits[low >>> 6] & bit) == 0) {
+					return false;
+				}
+				bits[low >>> 6] &= ~bit;
+				// Not right at the limit, so removing and adding the same id doesn't convert it every time
+				if (--count < ARRAY_LIMIT / 2) {
+					toValues();
+				}
+				return true;
+			}
+			final int i = Arrays.binarySearch(values, 0, count, low);
+			if (i < 0) {
+				return false;
+			}
+			System.arraycopy(values, i + 1, values, i, count - i - 1);
+			count--;
+			return true;
+		}
+
+		boolean contains(char low) {
+			return bits != null ? (bits[low >>> 6] & (1L << low)) != 0
+					: Arrays.binarySearch(values, 0, count, low) >= 0;
+		}
+
+		void forEach(int high, IntConsumer action) {
+			if (bits != null) {
+				for (int w = 0; w < WORDS; w++) {
+					for (long word = bits[w]; word != 0; word &= word - 1) {
+						action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+					}
+				}
+			} else {
+				for (int i = 0; i < count; i++) {
+					action.accept(high | values[i]);
+				}
+			}
+		}
+
+		private void toBits() {
+			bits = new long[WORDS];
+			for (int i = 0; i < count; i++) {
+				bits[values[i] >>> 6] |= 1L << values[i];
+			}
+			values = null;
+		}
+
+		private void toValues() {
+			values = new char[Math.max(4, count)];
+			int i = 0;
+			for (int w = 0; w < WORDS; w++) {
+				for (long word = bits[w]; word != 0; word &= word - 1) {
+					values[i++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+				}
+			}
+			bits = null;
+		}
+	}
+}
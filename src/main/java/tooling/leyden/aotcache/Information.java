@@ -1,19 +1,29 @@
 package tooling.leyden.aotcache;
 
 import tooling.leyden.commands.CommonParameters;
+import tooling.leyden.commands.autocomplete.WhichRun;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class Information {
@@ -27,24 +37,46 @@ public class Information {
     private Map<Key, Element> elementsNotInTheCache = new ConcurrentHashMap<>();
 
     //List of warnings and incidents that may be useful to check
-    private List<Warning> warnings = new ArrayList<>();
+    private List<Warning> warnings = Collections.synchronizedList(new ArrayList<>());
     //Auto-generated warnings by `warning check` command
-    private List<Warning> autoWarnings = new ArrayList<>();
+    private List<Warning> autoWarnings = Collections.synchronizedList(new ArrayList<>());
 
     //Store information extracted and inferred
     private Configuration configuration = new Configuration();
     private Configuration statistics = new Configuration();
 
     //To pre-calculate auto-completion
-    private List<String> identifiers = new ArrayList<>();
+    private List<String> identifiers = Collections.synchronizedList(new ArrayList<>());
     //To search by address
-    private Map<String, Element> elementsByAddress = new ConcurrentHashMap<>();
+    private final AddressIndex elementsByAddress = new AddressIndex();
     //To find Heap Roots
     private Set<String> heapRootAddresses = Collections.synchronizedSet(new HashSet<>());
     private ReferencingElement heapRoot = null;
+    //References between elements. Created on first use, so this information isn't handed out before it's built
+    private volatile ReferenceGraph referenceGraph;
+    private final Object creatingGraph = new Object();
+    //Elements by type, package, loaded and trained, to filter without going through all of them
+    private final ElementIndex index = new ElementIndex();
+    //Saved analysis whose elements are created when something looks for them. See inflate
+    private volatile SnapshotFile snapshot;
+
+    //Elements sorted for listing, by type and elements to use. See getSortedElements
+    private final Map<SortedViewKey, SortedView> sortedViews = new ConcurrentHashMap<>();
+    //Changes each time elements are added or removed, so we know when sorted views are outdated
+    private final AtomicLong version = new AtomicLong();
 
     private ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
 
+    //Changes done by the load running on each thread, so they can be undone if the load gets cancelled
+    private final ThreadLocal<Changes> changes = new ThreadLocal<>();
+
+    //Loads add elements at the same time, only adding the same key is done one at a time. Anything that needs no
+    //element to be added meanwhile, like a rollback, takes the write lock
+    private final ReadWriteLock adding = new ReentrantReadWriteLock();
+    private final Object[] keyLocks = Stream.generate(Object::new).limit(64).toArray();
+    //Elements being created by getOrCreate, so loads looking for them wait instead of creating them again
+    private final Map<Key, CompletableFuture<Element>> creating = new ConcurrentHashMap<>();
+
     //Singletonish
     private static Information myself;
 
@@ -58,23 +90,59 @@ public class Information {
     }
 
     public void addAOTCacheElement(Element e, String source) {
-        e.addSource(source);
+        inflate();
         final var key = new Key(e.getKey(), e.getType());
-        elements.put(key, e);
+        adding.readLock().lock();
+        try {
+            synchronized (keyLock(key)) {
+                addAOTCacheElement(e, key, source, this.changes.get());
+            }
+        } finally {
+            adding.readLock().unlock();
+        }
+    }
+
+    private void addAOTCacheElement(Element e, Key key, String source, Changes changes) {
+        version.incrementAndGet();
+        e.addSource(source);
+        final var previous = elements.put(key, e);
+        if (changes != null) {
+            keepFirst(changes.elements, key, previous);
+            if (e.indexId < 0) {
+                changes.added.add(e);
+            }
+        }
+        if (previous != null && previous != e) {
+            index.remove(previous, true);
+        }
 
         // Due to weird ordering in logfiles, sometimes a method gets
         // referenced before the class it belongs to gets referenced.
         // So we have to make sure elements are not repeated both in
         // this.elements and this.elementsNotInTheCache
         if (elementsNotInTheCache.containsKey(key)) {
-            elementsNotInTheCache.remove(key);
+            final var external = elementsNotInTheCache.remove(key);
+            if (changes != null) {
+                keepFirst(changes.externalElements, key, external);
+            }
+            index.remove(external, false);
         }
+        index.add(e, true);
 
         if (e.getAddress() != null) {
-            elementsByAddress.putIfAbsent(e.getAddress(), e);
-            if (heapRootAddresses.contains(e.getAddress())) {
+            final long address = AddressIndex.parse(e.getAddress());
+            if (elementsByAddress.putIfAbsent(address, e) == null) {
+                getReferenceGraph().addressAdded(address);
+                if (changes != null) {
+                    changes.addresses.add(e.getAddress());
+                }
+            }
+            if (heapRootAddresses.remove(e.getAddress())) {
                 e.setHeapRoot(true);
-                heapRootAddresses.remove(e.getAddress());
+                if (changes != null) {
+                    final var heapRootAddress = e.getAddress();
+                    changes.undo.add(() -> heapRootAddresses.add(heapRootAddress));
+                }
                 if (heapRoot != null) {
                     heapRoot.addReference(e);
                 }
@@ -82,35 +150,321 @@ public class Information {
         }
 
         // Pre-calculate auto-completions
-        if (e.getType().equalsIgnoreCase("Class") && !identifiers.contains(e.getKey())) {
-            identifiers.add(e.getKey());
+        // Reuse the key's identifier, getKey() may build a new String on each call
+        if (e.getType().equalsIgnoreCase("Class") && !identifiers.contains(key.identifier())) {
+            identifiers.add(key.identifier());
+            if (changes != null) {
+                changes.identifiers.add(key.identifier());
+            }
         }
     }
 
     public void addExternalElement(Element e) {
-        elementsNotInTheCache.put(new Key(e.getKey(), e.getType()), e);
+        inflate();
+        final var key = new Key(e.getKey(), e.getType());
+        adding.readLock().lock();
+        try {
+            synchronized (keyLock(key)) {
+                addExternalElement(e, key, this.changes.get());
+            }
+        } finally {
+            adding.readLock().unlock();
+        }
+    }
+
+    private void addExternalElement(Element e, Key key, Changes changes) {
+        version.incrementAndGet();
+        final var previous = elementsNotInTheCache.put(key, e);
+        if (changes != null) {
+            keepFirst(changes.externalElements, key, previous);
+            if (e.indexId < 0) {
+                changes.added.add(e);
+            }
+        }
+        if (previous != null && previous != e) {
+            index.remove(previous, false);
+        }
+        index.add(e, false);
         if (e.getAddress() != null) {
-            elementsByAddress.putIfAbsent(e.getAddress(), e);
+            final long address = AddressIndex.parse(e.getAddress());
+            if (elementsByAddress.putIfAbsent(address, e) == null) {
+                getReferenceGraph().addressAdded(address);
+                if (changes != null) {
+                    changes.addresses.add(e.getAddress());
+                }
+            }
         }
     }
 
+    // The same key always gets the same lock, so an element moving to the cache can't be added outside it meanwhile
+    private Object keyLock(Key key) {
+        final int hash = key.hashCode();
+        return keyLocks[(hash ^ (hash >>> 16)) & (keyLocks.length - 1)];
+    }
+
     public Map<Key, Element> getExternalElements() {
+        inflate();
         return this.elementsNotInTheCache;
     }
 
+    /**
+     * Elements will be created from this snapshot when they are looked for, instead of all of them now.
+     * Called with the lock of this information held.
+     */
+    void attach(SnapshotFile snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * An element of the attached snapshot was created, it goes where it was when the snapshot was saved.
+     * Called with the lock of this information held. It is not a change of the load running, if any.
+     */
+    void restore(Element e, boolean cached) {
+        final var key = new Key(e.getKey(), e.getType());
+        if (cached) {
+            addAOTCacheElement(e, key, e.getSources().getFirst(), null);
+        } else {
+            addExternalElement(e, key, null);
+        }
+    }
+
+    /**
+     * Creates the elements still waiting on the snapshot, if there is one. Anything going through all the elements,
+     * or changing them, needs them all.
+     */
+    void inflate() {
+        if (snapshot == null) {
+            return;
+        }
+        synchronized (this) {
+            final var s = snapshot;
+            if (s != null) {
+                adding.writeLock().lock();
+                try {
+                    s.createAll();
+                    getReferenceGraph().restored(s::element);
+                    //Only now, or elements on these addresses would have been taken as new heap roots
+                    heapRootAddresses.addAll(s.getHeapRootAddresses());
+                    snapshot = null;
+                } finally {
+                    adding.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@code getAll().size()}, without creating the elements still waiting on a snapshot.
+     */
+    public int countCached() {
+        final var s = snapshot;
+        return s != null ? s.count(true) : elements.size();
+    }
+
+    /**
+     * Same as {@code getExternalElements().size()}, without creating the elements still waiting on a snapshot.
+     */
+    public int countExternal() {
+        final var s = snapshot;
+        return s != null ? s.count(false) : elementsNotInTheCache.size();
+    }
+
     public void addHeapRoot(String address) {
-        this.heapRootAddresses.add(address);
+        if (this.heapRootAddresses.add(address)) {
+            changed(() -> heapRootAddresses.remove(address));
+        }
+    }
+
+    ReferencingElement getHeapRoot() {
+        return heapRoot;
+    }
+
+    Set<String> getHeapRootAddresses() {
+        return heapRootAddresses;
     }
 
     public void setHeapRoot(ReferencingElement e) {
-        this.heapRoot = e;
+        // Elements added meanwhile go to the heap root they see
+        adding.writeLock().lock();
+        try {
+            final var changes = this.changes.get();
+            if (changes != null && !changes.heapRootChanged) {
+                changes.heapRootChanged = true;
+                changes.heapRoot = this.heapRoot;
+            }
+            this.heapRoot = e;
+        } finally {
+            adding.writeLock().unlock();
+        }
     }
 
     public void addWarning(Element element, String reason, WarningType warningType) {
-        this.warnings.add(new Warning(element, reason, warningType));
+        addWarning(new Warning(element, reason, warningType));
+    }
+
+    public void addWarning(Warning warning) {
+        this.warnings.add(warning);
+        final var changes = this.changes.get();
+        if (changes != null) {
+            changes.warnings.add(warning);
+        }
+    }
+
+    /**
+     * Start keeping track of the elements and warnings added from this thread, until
+     * {@link #stopRecordingChanges()} is called.
+     */
+    public Changes recordChanges() {
+        final var changes = new Changes();
+        changes.graph = getReferenceGraph().checkpoint();
+        this.changes.set(changes);
+        return changes;
+    }
+
+    public void stopRecordingChanges() {
+        this.changes.remove();
+    }
+
+    /**
+     * Undo the changes recorded. Elements that were already there before recording are restored, along with what the
+     * load changed on them: references, sources, training data... Statistics, configuration and heap roots go back to
+     * what they were too.
+     */
+    public void rollback(Changes changes) {
+        // Undoing changes records nothing
+        stopRecordingChanges();
+        inflate();
+        // References still waiting are resolved the same as the ones on the graph, outside our lock as it
+        // looks for elements by address
+        getReferenceGraph().build();
+        synchronized (this) {
+            adding.writeLock().lock();
+            try {
+                rollbackBuilt(changes);
+            } finally {
+                adding.writeLock().unlock();
+            }
+        }
+    }
+
+    private void rollbackBuilt(Changes changes) {
+        version.incrementAndGet();
+        for (int i = changes.undo.size() - 1; i >= 0; i--) {
+            changes.undo.get(i).run();
+        }
+
+        // Elements the load put on the information that won't be there anymore
+        final Set<Element> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        changes.elements.keySet().forEach(key -> removed.add(elements.get(key)));
+        changes.externalElements.keySet().forEach(key -> removed.add(elementsNotInTheCache.get(key)));
+        changes.elements.values().forEach(removed::remove);
+        changes.externalElements.values().forEach(removed::remove);
+        removed.remove(null);
+        getReferenceGraph().rollback(changes.graph, removed, changes.references, changes.referencedBy);
+
+        changes.elements.forEach((key, previous) -> restore(elements, true, key, previous));
+        changes.externalElements.forEach((key, previous) -> restore(elementsNotInTheCache, false, key, previous));
+        changes.addresses.forEach(address -> elementsByAddress.remove(AddressIndex.parse(address)));
+        final Set<Warning> addedWarnings = Collections.newSetFromMap(new IdentityHashMap<>());
+        addedWarnings.addAll(changes.warnings);
+        warnings.removeIf(addedWarnings::contains);
+        identifiers.removeAll(changes.identifiers);
+        if (changes.heapRootChanged) {
+            heapRoot = changes.heapRoot;
+        }
+    }
+
+    // Can't use putIfAbsent, null values matter here
+    private static void keepFirst(Map<Key, Element> map, Key key, Element previous) {
+        if (!map.containsKey(key)) {
+            map.put(key, previous);
+        }
+    }
+
+    private void restore(Map<Key, Element> map, boolean cached, Key key, Element previous) {
+        final var current = previous == null ? map.remove(key) : map.put(key, previous);
+        if (current != null) {
+            index.remove(current, cached);
+        }
+        if (previous != null) {
+            index.add(previous, cached);
+        }
+    }
+
+    /**
+     * The load running on this thread changed something on the element. If the element was there before the load
+     * started, the change gets undone if the load is cancelled.
+     */
+    static void changed(Element e, Runnable undo) {
+        final var changes = recording(e);
+        if (changes != null) {
+            changes.undo.add(undo);
+        }
+    }
+
+    /**
+     * The load running on this thread changed the configuration or the statistics.
+     */
+    static void changed(Runnable undo) {
+        final var information = myself;
+        final var changes = information == null ? null : information.changes.get();
+        if (changes != null) {
+            changes.undo.add(undo);
+        }
+    }
+
+    /**
+     * The element references something else now, see {@link #changed(Element, Runnable)}.
+     */
+    static void referenceAdded(Element e, Element reference) {
+        final var changes = recording(e);
+        if (changes != null) {
+            changes.references.add(e);
+            changes.references.add(reference);
+        }
+    }
+
+    /**
+     * The element was marked as referenced, see {@link #changed(Element, Runnable)}.
+     */
+    static void referencedByAdded(Element e, Element referencedBy) {
+        final var changes = recording(e);
+        if (changes != null) {
+            changes.referencedBy.add(e);
+            changes.referencedBy.add(referencedBy);
+        }
+    }
+
+    // Changes of the load running on this thread, if the element was there before it started
+    private static Changes recording(Element e) {
+        final var information = myself;
+        final var changes = information == null ? null : information.changes.get();
+        // Elements get an index id when they are added to the information
+        return changes != null && e.indexId >= 0 && !changes.added.contains(e) ? changes : null;
+    }
+
+    /**
+     * Something the {@link ElementIndex} filters by changed on the element.
+     */
+    static void indexChanged(Element e) {
+        final var information = myself;
+        if (information != null) {
+            information.index.update(e);
+        }
+    }
+
+    /**
+     * The element references something else, which may put it on more packages of the {@link ElementIndex}.
+     */
+    static void indexReference(Element e, Element reference) {
+        final var information = myself;
+        if (information != null) {
+            information.index.addReference(e, reference);
+        }
     }
 
     public void clear() {
+        snapshot = null;
         elements.clear();
         elementsNotInTheCache.clear();
         warnings.clear();
@@ -121,6 +475,20 @@ public class Information {
         elementsByAddress.clear();
         heapRootAddresses.clear();
         heapRoot = null;
+        getReferenceGraph().clear();
+        index.clear();
+        sortedViews.clear();
+        version.incrementAndGet();
+        StringPool.clear();
+    }
+
+    /**
+     * Nothing was loaded since the last clear.
+     */
+    public boolean isEmpty() {
+        return snapshot == null && elements.isEmpty() && elementsNotInTheCache.isEmpty() && warnings.isEmpty()
+                && autoWarnings.isEmpty() && statistics.getKeys().isEmpty() && configuration.getKeys().isEmpty()
+                && heapRoot == null && heapRootAddresses.isEmpty();
     }
 
     public boolean cacheContains(Element e) {
@@ -131,8 +499,73 @@ public class Information {
         return getElements(parameters).count() > 0;
     }
 
+    /**
+     * Element with exactly this identifier and type, on the cache or outside it, created if there is none.
+     * Existing elements are found without locking. Loads looking for an element another load is creating wait
+     * for it, so two loads running at the same time can't create the same element twice.
+     *
+     * @param create Creates the element and adds it to this information.
+     */
+    public Element getOrCreate(String identifier, String type, Supplier<Element> create) {
+        final var key = new Key(identifier, type);
+        var e = find(key);
+        if (e != null) {
+            return e;
+        }
+        // Adding it needs all the elements, better before anyone waits for this one
+        inflate();
+        final var creation = new CompletableFuture<Element>();
+        final var other = creating.putIfAbsent(key, creation);
+        if (other != null) {
+            return other.join();
+        }
+        try {
+            e = find(key);
+            if (e == null) {
+                e = create.get();
+            }
+            creation.complete(e);
+            return e;
+        } catch (RuntimeException | Error t) {
+            creation.completeExceptionally(t);
+            throw t;
+        } finally {
+            creating.remove(key);
+        }
+    }
+
+    private Element find(Key key) {
+        create(key);
+        var e = elements.get(key);
+        if (e == null) {
+            e = elementsNotInTheCache.get(key);
+        }
+        // Elements move to the cache by being added there before being removed from outside it,
+        // so if we looked outside while it was moving, it is on the cache now
+        return e != null ? e : elements.get(key);
+    }
+
     public Element getByAddress(String address) {
-        return elementsByAddress.getOrDefault(address, null);
+        try {
+            final long parsed = AddressIndex.parse(address);
+            final var found = elementsByAddress.get(parsed);
+            final var s = snapshot;
+            return found != null || s == null ? found : s.getByAddress(parsed);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    Element getByAddress(long address) {
+        return elementsByAddress.get(address);
+    }
+
+    // Creates the elements with this key that are waiting on the snapshot, if any
+    private void create(Key key) {
+        final var s = snapshot;
+        if (s != null) {
+            s.create(key);
+        }
     }
 
 
@@ -155,15 +588,115 @@ public class Information {
         return executorService.submit(() -> getElements(parameters));
     }
 
+    public Future<Long> getFutureCount(CommonParameters parameters) {
+        return executorService.submit(() -> count(parameters));
+    }
+
+    /**
+     * Same as counting {@link #getElements(CommonParameters)}, without going through the elements when every filter
+     * can be answered with the index.
+     */
+    public long count(CommonParameters parameters) {
+        if (isTrivial(parameters)) {
+            return getElements(parameters).count();
+        }
+        inflate();
+        final var selection = index.select(parameters);
+        if (selection.plan().predicates().isEmpty() && parameters.getAddressRange() == null) {
+            return selection.plan().candidates();
+        }
+        return filter(parameters, selection).count();
+    }
+
+    /**
+     * How many elements of each type {@link #getElements(CommonParameters)} returns.
+     */
+    public Map<String, Integer> countByType(CommonParameters parameters) {
+        if (!isTrivial(parameters)) {
+            inflate();
+            final var selection = index.select(parameters);
+            if (selection.plan().predicates().isEmpty() && parameters.getAddressRange() == null) {
+                return index.countByType(selection);
+            }
+        }
+        final var counts = new ConcurrentHashMap<String, Integer>();
+        getElements(parameters).forEach(e -> counts.merge(e.getType(), 1, Integer::sum));
+        return counts;
+    }
+
+    /**
+     * How {@link #getElements(CommonParameters)} would find the elements for these parameters.
+     */
+    public QueryPlan explain(CommonParameters parameters) {
+        if (isTrivial(parameters)) {
+            final var found = (int) getElements(parameters).count();
+            final var lookup = parameters.getAddress() != null && !hasKeyAndType(parameters) ?
+                    "--address " + parameters.getAddress() : "--identifier " + parameters.getName() + " --type "
+                    + String.join(",", parameters.getTypes());
+            return new QueryPlan(List.of(lookup + " -> " + found), List.of(), found);
+        }
+        inflate();
+        final var selection = index.select(parameters);
+        final var range = parameters.getAddressRange();
+        if (range == null) {
+            return selection.plan();
+        }
+        //The index only narrows down the elements on the range
+        final var inRange = getByAddressRange(range);
+        final var steps = new ArrayList<String>();
+        steps.add("--addressRange " + String.join(",", range) + " -> " + inRange.size());
+        steps.addAll(selection.plan().steps());
+        final var candidates = (int) inRange.stream().filter(selection::contains).count();
+        return new QueryPlan(steps, selection.plan().predicates(), candidates);
+    }
+
+    /**
+     * Elements with an address between these two, both included, sorted by address.
+     */
+    public List<Element> getByAddressRange(String from, String to) {
+        inflate();
+        try {
+            return elementsByAddress.range(AddressIndex.parse(from), AddressIndex.parse(to));
+        } catch (NumberFormatException e) {
+            return List.of();
+        }
+    }
+
+    private List<Element> getByAddressRange(String[] range) {
+        return range.length == 2 ? getByAddressRange(range[0], range[1]) : List.of();
+    }
+
+    private static boolean hasKeyAndType(CommonParameters parameters) {
+        return parameters.getName() != null && !parameters.getName().isBlank()
+                && parameters.getTypes() != null && parameters.getTypes().length > 0;
+    }
+
+    //Found with a lookup, without the index
+    private static boolean isTrivial(CommonParameters parameters) {
+        return hasKeyAndType(parameters) || parameters.getAddress() != null;
+    }
+
+    private Stream<Element> filter(CommonParameters parameters, ElementIndex.Selection selection) {
+        var result = parameters.getAddressRange() != null ?
+                getByAddressRange(parameters.getAddressRange()).stream().filter(selection::contains) :
+                selection.stream().parallel();
+        final String key = parameters.getName();
+        if (key != null && !key.isBlank()) {
+            result = result.filter(e -> e.getKey().equalsIgnoreCase(key));
+        }
+        return filterByParams(parameters, result, selection.pending());
+    }
+
     public Stream<Element> getElements(CommonParameters parameters) {
         String key = parameters.getName();
         String[] type = parameters.getTypes();
 
-        if (key != null && !key.isBlank() && type != null && type.length > 0) {
+        if (hasKeyAndType(parameters)) {
             //This is trivial, don't search through all elements
             var result = new ArrayList<Element>();
             for (String t : type) {
                 var k = new Key(key, t);
+                create(k);
                 if (parameters.getUse() != CommonParameters.ElementsToUse.notCached
                         && elements.containsKey(k)) {
                         result.add(elements.get(k));
@@ -178,25 +711,66 @@ public class Information {
 
         //Another trivial set
         if (parameters.getAddress() != null) {
-            return Stream.ofNullable(elementsByAddress.getOrDefault(parameters.getAddress(), null));
+            return Stream.ofNullable(getByAddress(parameters.getAddress()));
         }
 
-        var tmp = new HashSet<Map.Entry<Key, Element>>();
-        if (parameters.getUse() != CommonParameters.ElementsToUse.cached) {
-            tmp.addAll(elementsNotInTheCache.entrySet());
+        //Discard what we can with the index, the filters without one check the rest
+        inflate();
+        return filter(parameters, index.select(parameters));
+    }
+
+
+    /**
+     * Same elements as {@link #getElements(CommonParameters)}, sorted by key and type.
+     * Sorting big caches is slow, so the sorted elements of each type are kept until an element is added or removed,
+     * and only the filters run on each call.
+     */
+    public Stream<Element> getSortedElements(CommonParameters parameters) {
+        if (isTrivial(parameters)) {
+            //Only a few elements, nothing to cache
+            return getElements(parameters).sorted(SORTED_ORDER);
         }
-        if (parameters.getUse() != CommonParameters.ElementsToUse.notCached) {
-            tmp.addAll(elements.entrySet());
+
+        if (parameters.getAddressRange() != null) {
+            //Already sorted, by address
+            return getElements(parameters);
         }
-        var result = tmp.parallelStream();
 
+        inflate();
+        final String key = parameters.getName();
+        final String[] types = parameters.getTypes();
+        final var selection = index.select(parameters);
+        var result = getSortedView(parameters.getUse(),
+                types != null && types.length == 1 ? types[0].toLowerCase() : null).stream()
+                .filter(selection::contains);
         if (key != null && !key.isBlank()) {
-            result = result.filter(keyElementEntry -> keyElementEntry.getKey().identifier().equalsIgnoreCase(key));
+            result = result.filter(e -> e.getKey().equalsIgnoreCase(key));
         }
-
-        return filterByParams(parameters, result.map(keyElementEntry -> keyElementEntry.getValue()));
+        return filterByParams(parameters, result, selection.pending());
     }
 
+    private List<Element> getSortedView(CommonParameters.ElementsToUse use, String type) {
+        final var current = version.get();
+        final var viewKey = new SortedViewKey(use, type);
+        final var view = sortedViews.get(viewKey);
+        if (view != null && view.version() == current) {
+            return view.elements();
+        }
+
+        var all = switch (use) {
+            case cached -> elements.values().parallelStream();
+            case notCached -> elementsNotInTheCache.values().parallelStream();
+            case both -> Stream.concat(elements.values().parallelStream(),
+                    elementsNotInTheCache.values().parallelStream());
+        };
+        if (type != null) {
+            all = all.filter(e -> e.getType().equalsIgnoreCase(type));
+        }
+        final var sorted = all.sorted(SORTED_ORDER).toList();
+        //If something changed while sorting, the version doesn't match and the next call sorts again
+        sortedViews.put(viewKey, new SortedView(current, sorted));
+        return sorted;
+    }
 
     public static Stream<Element> filterByParams(String[] packageName,
                                                  String[] excludePackageName,
@@ -216,12 +790,20 @@ public class Information {
     }
 
     public static Stream<Element> filterByParams(CommonParameters parameters, Stream<Element> result) {
+        return filterByParams(parameters, result, EnumSet.allOf(Filter.class));
+    }
+
+    /**
+     * Only applies these filters, the rest were already done with the {@link ElementIndex}.
+     */
+    private static Stream<Element> filterByParams(CommonParameters parameters, Stream<Element> result,
+                                                  Set<Filter> filters) {
 
         var packageName = parameters.getPackageName();
         var excludePackageName = parameters.getExcludePackageName();
 
 
-        if (packageName != null && packageName.length > 0) {
+        if (filters.contains(Filter.PACKAGE) && packageName != null && packageName.length > 0) {
             result = result.filter(e -> {
                 if (e instanceof ClassObject classObject) {
                     return Arrays.stream(packageName).anyMatch(p -> classObject.getPackageName().startsWith(p));
@@ -235,28 +817,27 @@ public class Information {
                 }
                 if (e.getType().equals("Object")
                         || e.getType().startsWith("ConstantPool")) {
-                    return Arrays.stream(packageName)
-                            .anyMatch(p -> e.getKey().startsWith(p));
+                    final var objectPackage = ElementIndex.packageNameOf(e);
+                    return objectPackage != null && Arrays.stream(packageName).anyMatch(objectPackage::startsWith);
                 }
                 if (e.getType().endsWith("TrainingData")
                         || e.getType().equalsIgnoreCase("MethodData")
                         || e.getType().equalsIgnoreCase("MethodCounters")) {
                     return Arrays.stream(packageName)
-                            .anyMatch(p -> ((ReferencingElement) e).getReferences().stream()
-                                    .anyMatch(r -> {
-                                        if (r instanceof ClassObject classObject) {
-                                            return classObject.getPackageName().startsWith(p);
-                                        } else if (r instanceof MethodObject methodObject) {
-                                            return methodObject.getClassObject().getPackageName().startsWith(p);
-                                        }
-                                        return false;
-                                    }));
+                            .anyMatch(p -> ((ReferencingElement) e).anyReference(r -> {
+                                if (r instanceof ClassObject classObject) {
+                                    return classObject.getPackageName().startsWith(p);
+                                } else if (r instanceof MethodObject methodObject) {
+                                    return methodObject.getClassObject().getPackageName().startsWith(p);
+                                }
+                                return false;
+                            }));
                 }
                 return false;
             });
         }
 
-        if (excludePackageName != null && excludePackageName.length > 0) {
+        if (filters.contains(Filter.EXCLUDE_PACKAGE) && excludePackageName != null && excludePackageName.length > 0) {
             result = result.filter(e -> {
                 if (e instanceof ClassObject classObject) {
                     return Arrays.stream(excludePackageName).noneMatch(p -> classObject.getPackageName().startsWith(p));
@@ -269,39 +850,39 @@ public class Information {
                     return Arrays.stream(excludePackageName).noneMatch(p -> methodObject.getName().startsWith(p));
                 }
                 if (e.getType().equals("Object") || e.getType().startsWith("ConstantPool")) {
-
-                    return Arrays.stream(excludePackageName).noneMatch(p -> e.getKey().startsWith(p));
+                    final var objectPackage = ElementIndex.packageNameOf(e);
+                    return objectPackage != null
+                            && Arrays.stream(excludePackageName).noneMatch(objectPackage::startsWith);
                 }
                 if (e.getType().endsWith("TrainingData")
                         || e.getType().equalsIgnoreCase("MethodData")
                         || e.getType().equalsIgnoreCase("MethodCounters")) {
                     return Arrays.stream(excludePackageName)
-                            .noneMatch(p -> ((ReferencingElement) e).getReferences().stream()
-                                    .anyMatch(r -> {
-                                        if (r instanceof ClassObject classObject) {
-                                            return classObject.getPackageName().startsWith(p);
-                                        } else if (r instanceof MethodObject methodObject) {
-                                            return methodObject.getClassObject().getPackageName().startsWith(p);
-                                        }
-                                        return false;
-                                    }));
+                            .noneMatch(p -> ((ReferencingElement) e).anyReference(r -> {
+                                if (r instanceof ClassObject classObject) {
+                                    return classObject.getPackageName().startsWith(p);
+                                } else if (r instanceof MethodObject methodObject) {
+                                    return methodObject.getClassObject().getPackageName().startsWith(p);
+                                }
+                                return false;
+                            }));
                 }
                 return false;
             });
         }
 
-        if (parameters.getTypes() != null && parameters.getTypes().length > 0) {
+        if (filters.contains(Filter.TYPES) && parameters.getTypes() != null && parameters.getTypes().length > 0) {
             result = result.filter(
                     e -> Arrays.stream(parameters.getTypes())
                     .anyMatch(t -> t.equalsIgnoreCase(e.getType()))
             );
         }
 
-        if (parameters.isHeapRoot() != null) {
+        if (filters.contains(Filter.HEAP_ROOT) && parameters.isHeapRoot() != null) {
             result = result.filter(e -> e.isHeapRoot() == parameters.isHeapRoot());
         }
 
-        if (parameters.getShowAOTInited() != null) {
+        if (filters.contains(Filter.AOT_INITED) && parameters.getShowAOTInited() != null) {
             result = result.filter(e -> {
                 if (e instanceof InstanceObject io) {
                     return io.isAOTinited() == parameters.getShowAOTInited();
@@ -311,7 +892,7 @@ public class Information {
             });
         }
 
-        if (!parameters.useArrays()) {
+        if (filters.contains(Filter.ARRAYS) && !parameters.useArrays()) {
             result = result.filter(e -> {
                 if (e instanceof ClassObject classObject) {
                     return !classObject.isArray();
@@ -321,11 +902,11 @@ public class Information {
         }
 
 
-        if (parameters.getTrained()) {
+        if (filters.contains(Filter.TRAINED) && parameters.getTrained()) {
             result = result.filter(e -> e.isTraineable() && e.isTrained());
         }
 
-        if (!parameters.getLambdas()) {
+        if (filters.contains(Filter.LAMBDAS) && !parameters.getLambdas()) {
             result = result
                     .filter(e -> {
                         if (e instanceof ClassObject classObject) {
@@ -336,7 +917,7 @@ public class Information {
                     });
         }
 
-        if (!parameters.getInnerClasses()) {
+        if (filters.contains(Filter.INNER_CLASSES) && !parameters.getInnerClasses()) {
             result = result
                     .filter(e -> {
                         if (e instanceof ClassObject classObject) {
@@ -347,17 +928,17 @@ public class Information {
                     });
         }
 
-        if (parameters.getReferencing() != null) {
+        if (filters.contains(Filter.REFERENCING) && parameters.getReferencing() != null) {
             result = result.filter(e -> {
                 if (e instanceof ReferencingElement re) {
-                    return re.getReferences().stream().anyMatch(
+                    return re.anyReference(
                             ref -> ref.getKey().equalsIgnoreCase(parameters.getReferencing()));
                 }
                 return false;
             });
         }
 
-        if (parameters.getInstanceOf() != null) {
+        if (filters.contains(Filter.INSTANCE_OF) && parameters.getInstanceOf() != null) {
             result = result.filter(e -> {
                 if (e instanceof InstanceObject io) {
                     return io.getInstanceOf() != null &&
@@ -367,7 +948,7 @@ public class Information {
             });
         }
 
-        switch (parameters.getLoaded()) {
+        switch (filters.contains(Filter.LOADED) ? parameters.getLoaded() : WhichRun.all) {
             case training -> result =
                     result.filter(e -> e.getType().equalsIgnoreCase("Class")
                             && e.wasLoaded().equals(Element.WhichRun.Training)
@@ -394,9 +975,24 @@ public class Information {
     }
 
     public Collection<Element> getAll() {
+        inflate();
         return elements.values();
     }
 
+    public ReferenceGraph getReferenceGraph() {
+        var graph = referenceGraph;
+        if (graph == null) {
+            synchronized (creatingGraph) {
+                graph = referenceGraph;
+                if (graph == null) {
+                    graph = new ReferenceGraph(this);
+                    referenceGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
     public Configuration getConfiguration() {
         return configuration;
     }
@@ -406,11 +1002,19 @@ public class Information {
     }
 
     public List<String> getAllTypes() {
+        final var s = snapshot;
+        if (s != null) {
+            return s.getTypes();
+        }
         return this.elements.keySet()
                 .parallelStream().map(key -> key.type).distinct().toList();
     }
 
     public List<String> getAllPackages() {
+        final var s = snapshot;
+        if (s != null) {
+            return s.getPackages();
+        }
         return this.elements.entrySet()
                 .parallelStream()
                 .filter((entry) -> entry.getValue() instanceof ClassObject)
@@ -420,13 +1024,79 @@ public class Information {
     }
 
     public List<String> getIdentifiers() {
-        return List.copyOf(identifiers);
+        final var s = snapshot;
+        return s != null ? s.getIdentifiers() : List.copyOf(identifiers);
     }
 
     public List<String> getAddressess() {
-        return List.copyOf(elementsByAddress.keySet());
+        final var s = snapshot;
+        return s != null ? s.getAddresses() : elementsByAddress.addresses();
     }
 
+    /**
+     * Types of elements come from the {@link StringPool}, so millions of keys share a handful of type Strings.
+     */
     public record Key(String identifier, String type) {
     }
+
+    /**
+     * Filters on {@link CommonParameters}, named after their option.
+     */
+    enum Filter {
+        PACKAGE("--packageName"),
+        EXCLUDE_PACKAGE("--excludePackageName"),
+        TYPES("--type"),
+        HEAP_ROOT("--showHeapRoot"),
+        AOT_INITED("--showAOTInited"),
+        ARRAYS("--showArrays"),
+        TRAINED("--trained"),
+        LAMBDAS("--lambdas"),
+        INNER_CLASSES("--innerClasses"),
+        REFERENCING("--referencing"),
+        INSTANCE_OF("--instanceOf"),
+        LOADED("--loaded");
+
+        private final String option;
+
+        Filter(String option) {
+            this.option = option;
+        }
+
+        @Override
+        public String toString() {
+            return option;
+        }
+    }
+
+    private static final Comparator<Element> SORTED_ORDER =
+            Comparator.comparing(Element::getKey).thenComparing(Element::getType);
+
+    private record SortedViewKey(CommonParameters.ElementsToUse use, String type) {
+    }
+
+    private record SortedView(long version, List<Element> elements) {
+    }
+
+    /**
+     * What a load added to the information, see {@link #recordChanges()}.
+     */
+    public static class Changes {
+        //Value is what was there before, or null if there was nothing
+        private final Map<Key, Element> elements = new HashMap<>();
+        private final Map<Key, Element> externalElements = new HashMap<>();
+        private final List<String> addresses = new ArrayList<>();
+        private final List<Warning> warnings = new ArrayList<>();
+        private final List<String> identifiers = new ArrayList<>();
+        private boolean heapRootChanged = false;
+        private ReferencingElement heapRoot;
+        //Elements that were not on the information before, anything else changed has to be undone
+        private final Set<Element> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        //Undo what was changed on elements that were there before, the statistics, the configuration...
+        private final List<Runnable> undo = new ArrayList<>();
+        //References added to elements that were there before, as pairs of the element and what it references
+        private final List<Element> references = new ArrayList<>();
+        private final List<Element> referencedBy = new ArrayList<>();
+        //The graph before recording, to tell new references from the ones that were there already
+        private ReferenceGraph.Snapshot graph;
+    }
 }
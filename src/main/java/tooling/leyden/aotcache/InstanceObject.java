@@ -18,6 +18,7 @@ public class InstanceObject extends ReferencingElement{
 
     public void setAOTinited(Boolean AOTinited) {
         isAOTinited = AOTinited;
+        Information.indexChanged(this);
     }
 
 
@@ -50,8 +51,14 @@ public class InstanceObject extends ReferencingElement{
         return instanceOf;
     }
 
+    // Without adding the class as a reference, for SnapshotFile
+    void restoreInstanceOf(ClassObject classObject) {
+        this.instanceOf = classObject;
+    }
+
     public void setInstanceOf(ClassObject classObject) {
         this.instanceOf = classObject;
+        Information.indexChanged(this);
         addReference(classObject);
     }
 }
@@ -23,6 +23,8 @@ public class MethodObject extends ReferencingElement {
 
 	private String returnType;
 	private List<String> parameters = new ArrayList<>();
+	// Used by hashCode and equals, so it is only built again when something it is made of changes
+	private volatile String key;
 
 	MethodObject(String identifier) {
 		super(identifier, "Method");
@@ -30,11 +32,19 @@ public class MethodObject extends ReferencingElement {
 		if (qualifiedName.contains("(")) {
 			qualifiedName = qualifiedName.substring(0, qualifiedName.indexOf("("));
 		}
-		this.setName(qualifiedName.substring(qualifiedName.lastIndexOf(".") + 1));
+		this.setName(StringPool.intern(qualifiedName.substring(qualifiedName.lastIndexOf(".") + 1)));
 		String className = qualifiedName.substring(0, qualifiedName.lastIndexOf("."));
 		this.fillReturnClass(identifier);
-		this.fillClass(className);
 		this.procesParameters(identifier);
+		// Last, so the class sorts its methods by their complete key
+		this.fillClass(className);
+	}
+
+	// Restores a saved method, see SnapshotFile. Its references are already on the saved graph
+	MethodObject(String name, String returnType, List<String> parameters) {
+		super(name, "Method");
+		this.returnType = returnType == null ? null : StringPool.intern(returnType);
+		parameters.forEach(parameter -> this.parameters.add(StringPool.intern(parameter)));
 	}
 
 	public ClassObject getClassObject() {
@@ -42,10 +52,28 @@ public class MethodObject extends ReferencingElement {
 	}
 
 	public void setClassObject(ClassObject classObject) {
-		this.classObject = classObject;
+		synchronized (this) {
+			this.classObject = classObject;
+			this.key = null;
+		}
+		Information.indexChanged(this);
 		addReference(classObject);
 	}
 
+	// Without adding the class as a reference, for SnapshotFile
+	synchronized void restoreClassObject(ClassObject classObject) {
+		this.classObject = classObject;
+		this.key = null;
+	}
+
+	String getRawReturnType() {
+		return returnType;
+	}
+
+	List<String> getParameters() {
+		return parameters;
+	}
+
 	public BasicObject getConstMethod() {
 		return constMethod;
 	}
@@ -75,7 +103,11 @@ public class MethodObject extends ReferencingElement {
 	}
 
 	public void setMethodTrainingData(Element methodTrainingData) {
+		final var previous = this.methodTrainingData;
 		this.methodTrainingData = methodTrainingData;
+		if (previous != methodTrainingData) {
+			Information.changed(this, () -> this.methodTrainingData = previous);
+		}
 	}
 
 	public Map<Integer, Element> getCompileTrainingData() {
@@ -83,30 +115,66 @@ public class MethodObject extends ReferencingElement {
 	}
 
 	public void addCompileTrainingData(Integer level, Element compileTrainingData) {
-		this.compileTrainingData.put(level, compileTrainingData);
+		final Element previous;
+		synchronized (this) {
+			previous = this.compileTrainingData.put(level, compileTrainingData);
+		}
+		Information.indexChanged(this);
+		if (previous != compileTrainingData) {
+			Information.changed(this, () -> {
+				synchronized (this) {
+					if (previous == null) {
+						this.compileTrainingData.remove(level);
+					} else {
+						this.compileTrainingData.put(level, previous);
+					}
+				}
+				Information.indexChanged(this);
+			});
+		}
 	}
 
 	public void addParameter(Element parameter) {
-		this.parameters.add(parameter.getKey());
+		synchronized (this) {
+			this.parameters.add(StringPool.intern(parameter.getKey()));
+			this.key = null;
+		}
 		addReference(parameter);
 	}
 
 	//If Class is not found on the AOT Cache,
 	//Maybe it is defined later?
-	public void addParameter(String parameter) {
-		this.parameters.add(parameter);
+	public synchronized void addParameter(String parameter) {
+		this.parameters.add(StringPool.intern(parameter));
+		this.key = null;
 	}
 
 	public String getReturnType() {
 		return returnType == null ? "void" : returnType;
 	}
 
-	public void setReturnType(String returnType) {
-		this.returnType = returnType;
+	public synchronized void setReturnType(String returnType) {
+		this.returnType = StringPool.intern(returnType);
+		this.key = null;
+	}
+
+	@Override
+	public synchronized void setName(String name) {
+		super.setName(name);
+		this.key = null;
 	}
 
 	@Override
 	public String getKey() {
+		final var key = this.key;
+		return key != null ? key : buildKey();
+	}
+
+	// Only calls the class' getKey(), which doesn't lock
+	private synchronized String buildKey() {
+		if (this.key != null) {
+			return this.key;
+		}
 		StringBuilder sb = new StringBuilder(getReturnType() + " ");
 		sb.append((getClassObject() != null) ? getClassObject().getKey() + "." + getName() : getName());
 		sb.append("(");
@@ -114,7 +182,8 @@ public class MethodObject extends ReferencingElement {
 			sb.append(String.join(", ", parameters));
 		}
 		sb.append(")");
-		return sb.toString();
+		this.key = sb.toString();
+		return this.key;
 	}
 
 	@Override
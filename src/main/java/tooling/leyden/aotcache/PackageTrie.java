@@ -0,0 +1,87 @@
+package tooling.leyden.aotcache;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Element ids by package, one node per package segment. Each node has the ids of its whole subtree, so finding the
+ * elements of a package prefix only walks the segments of the prefix. Most packages have a few elements, so nodes keep
+ * them on an {@link IdSet} instead of a bit for each element on the index.
+ * Not thread safe, {@link ElementIndex} guards it.
+ */
+final class PackageTrie {
+
+	private Node root = new Node();
+
+	void add(String packageName, int id) {
+		var node = root;
+		for (String segment : segments(packageName)) {
+			node = node.children.computeIfAbsent(segment, s -> new Node());
+			node.ids.add(id);
+		}
+	}
+
+	void remove(String packageName, int id) {
+		var node = root;
+		for (String segment : segments(packageName)) {
+			node = node.children.get(segment);
+			if (node == null) {
+				return;
+			}
+			node.ids.remove(id);
+		}
+	}
+
+	/**
+	 * Ids added with a package that starts with this prefix. The last segment of the prefix may be partial, so
+	 * "java.la" finds "java.lang" and "java" finds "javax" too, the same as {@link String#startsWith(String)}.
+	 */
+	BitSet startingWith(String prefix) {
+		final var segments = segments(prefix);
+		var node = root;
+		for (int i = 0; i < segments.length - 1; i++) {
+			node = node.children.get(segments[i]);
+			if (node == null) {
+				return new BitSet();
+			}
+		}
+		final var last = segments[segments.length - 1];
+		final var result = new BitSet();
+		node.children.forEach((segment, child) -> {
+			if (segment.startsWith(last)) {
+				child.ids.orInto(result);
+			}
+		});
+		return result;
+	}
+
+	void clear() {
+		root = new Node();
+	}
+
+	/**
+	 * Moves every id to its position on this mapping, see {@link IdSet#remap(int[])}.
+	 */
+	void remap(int[] mapping) {
+		remap(root, mapping);
+	}
+
+	// Packages left without elements go away
+	private static void remap(Node node, int[] mapping) {
+		node.ids = node.ids.remap(mapping);
+		node.children.values().removeIf(child -> {
+			remap(child, mapping);
+			return child.ids.isEmpty();
+		});
+	}
+
+	private static String[] segments(String packageName) {
+		return packageName.split("\\.", -1);
+	}
+
+	private static final class Node {
+		private final Map<String, Node> children = new HashMap<>();
+		private IdSet ids = new IdSet();
+	}
+}
@@ -0,0 +1,14 @@
+package tooling.leyden.aotcache;
+
+import java.util.List;
+
+/**
+ * How {@link Information#getElements(tooling.leyden.commands.CommonParameters)} finds the elements for some
+ * parameters.
+ *
+ * @param steps      Bitmap operations done on the index, in order.
+ * @param predicates Filters without an index, checked on each candidate.
+ * @param candidates Elements left after the bitmap operations.
+ */
+public record QueryPlan(List<String> steps, List<String> predicates, int candidates) {
+}
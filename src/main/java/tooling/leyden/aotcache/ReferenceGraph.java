@@ -0,0 +1,995 @@
+package tooling.leyden.aotcache;
+
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import tooling.leyden.QuarkusPicocliLineApp;
+import tooling.leyden.StatusMessage;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * References between elements, stored as arrays of ids instead of a set of elements on each element.
+ * <p>
+ * Each element on the graph has a dense int id. The references of an element are on compressed sparse rows:
+ * the ids of the elements referenced by id {@code i} are {@code targets[offsets[i]]} to
+ * {@code targets[offsets[i + 1] - 1]}, grouped by type. Who references each element is on rows built the same way,
+ * sorted by id.
+ * <p>
+ * While loading, new references wait on the element holding them, so parsing only appends to a small array.
+ * {@link #build()} moves them to the rows. It runs once the last file loading finishes, and before answering who
+ * references an element if there are references waiting and nothing is loading. While files load, who references an
+ * element is answered from the last build.
+ * <p>
+ * A build only sorts again the rows getting new references, the rest are copied as they are. Placeholders are resolved
+ * in parallel, without holding the lock of the graph. The ones with nothing on their address yet wait until something
+ * is added there.
+ */
+public class ReferenceGraph {
+
+	// Rows smaller than this are sorted on the calling thread
+	private static final int PARALLEL_THRESHOLD = 10_000;
+
+	private static final Comparator<Element> BY_TYPE = Comparator.comparing(Element::getType);
+
+	private final Information information;
+
+	// Elements with references waiting to be moved to the graph
+	private final Queue<Element> pending = new ConcurrentLinkedQueue<>();
+	// Elements referencing placeholders we haven't found yet, by the address they wait for
+	private final Map<Long, List<ReferencingElement>> waiting = new ConcurrentHashMap<>();
+
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
+	// Changes when the graph is cleared or replaced, so a build running meanwhile doesn't bring back what was there
+	private long generation = 0;
+	// Builds take turns. Only publishing a build, clearing or replacing the graph hold the lock of the graph itself
+	private final Object building = new Object();
+
+	// Files loading, the last one to finish builds the graph
+	private final AtomicInteger loading = new AtomicInteger();
+	// Placeholders still waiting are dropped when the last file finishes loading
+	private volatile boolean dropWhenLoaded = false;
+
+	// Keep the rows on memory mapped temporary files instead of on the heap. Elements always stay on the heap
+	private volatile boolean offHeap = Boolean.getBoolean("leyden.offHeap");
+
+	ReferenceGraph(Information information) {
+		this.information = information;
+	}
+
+	void addReference(ReferencingElement element, Element reference) {
+		synchronized (element) {
+			if (element.pendingReferences == null) {
+				element.pendingReferences = new Edges();
+			}
+			element.pendingReferences.add(reference);
+			queue(element);
+		}
+	}
+
+	void addReferencedBy(Element element, Element referencedBy) {
+		synchronized (element) {
+			if (element.pendingReferencedBy == null) {
+				element.pendingReferencedBy = new Edges();
+			}
+			element.pendingReferencedBy.add(referencedBy);
+			queue(element);
+		}
+	}
+
+	// Called holding the lock of the element
+	private void queue(Element element) {
+		if (!element.onGraphQueue) {
+			element.onGraphQueue = true;
+			pending.add(element);
+		}
+	}
+
+	/**
+	 * Elements referenced by this one, including the ones still waiting to be on the graph, grouped by type.
+	 * Once they are all on the graph, this is a view of its row, nothing is copied or sorted.
+	 */
+	public List<Element> getReferences(ReferencingElement element) {
+		final var s = this.snapshot;
+		final int id = s.idOf(element);
+		final var waiting = waiting(element);
+		if (waiting == null) {
+			return id < 0 ? List.of() : s.row(s.references, id);
+		}
+		final var result = id < 0 ? new ArrayList<Element>() : new ArrayList<>(s.row(s.references, id));
+		final Set<Element> seen = new HashSet<>(result);
+		for (Element e : waiting) {
+			if (seen.add(e)) {
+				result.add(e);
+			}
+		}
+		result.sort(BY_TYPE);
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Whether any of the elements referenced by this one matches, looking at them in no particular order.
+	 */
+	public boolean anyReference(ReferencingElement element, Predicate<Element> predicate) {
+		final var s = this.snapshot;
+		final int id = s.idOf(element);
+		final int start = id < 0 ? 0 : s.references.start(id);
+		final int end = id < 0 ? 0 : s.references.end(id);
+		for (int i = start; i < end; i++) {
+			if (predicate.test(s.element(s.references.targets.get(i)))) {
+				return true;
+			}
+		}
+		final var waiting = waiting(element);
+		if (waiting != null) {
+			for (Element e : waiting) {
+				// Not tested twice if it is on the row too. Only a few references wait after a build
+				if (!(e.graphId >= 0 && s.idOf(e) >= 0 && contains(s.references, start, end, e.graphId))
+						&& predicate.test(e)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static Element[] waiting(ReferencingElement element) {
+		synchronized (element) {
+			return element.pendingReferences == null ? null : element.pendingReferences.toArray();
+		}
+	}
+
+	private static boolean contains(Rows rows, int start, int end, int id) {
+		for (int i = start; i < end; i++) {
+			if (rows.targets.get(i) == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Elements that have this one among their references.
+	 */
+	public List<Element> getReferencing(Element element) {
+		final var s = built();
+		final int id = s.idOf(element);
+		return id < 0 ? List.of() : s.row(s.referencing, id);
+	}
+
+	/**
+	 * Elements that have this one among their references, plus the ones that marked it as referenced without it
+	 * being a reference, like the class of a method.
+	 */
+	public List<Element> getWhoReferences(Element element) {
+		final var s = built();
+		final int id = s.idOf(element);
+		if (id < 0) {
+			return List.of();
+		}
+		// Both rows are sorted, merge them skipping repeated ids
+		final var result = new ArrayList<Element>();
+		int i = s.referencing.start(id), iEnd = s.referencing.end(id);
+		int j = s.referencedBy.start(id), jEnd = s.referencedBy.end(id);
+		while (i < iEnd || j < jEnd) {
+			final int a = i < iEnd ? s.referencing.targets.get(i) : Integer.MAX_VALUE;
+			final int b = j < jEnd ? s.referencedBy.targets.get(j) : Integer.MAX_VALUE;
+			result.add(s.element(Math.min(a, b)));
+			if (a <= b) {
+				i++;
+			}
+			if (b <= a) {
+				j++;
+			}
+		}
+		return result;
+	}
+
+	private Snapshot built() {
+		if (!pending.isEmpty() && loading.get() == 0) {
+			build(false);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Move the references waiting on the elements to the graph.
+	 */
+	public void build() {
+		build(false);
+	}
+
+	/**
+	 * Builds the graph, dropping the placeholders that point to an address where there is nothing.
+	 * Call it once everything that could be referenced is loaded. While files are loading, they are dropped when the
+	 * last one finishes instead, as any of them may add what is on those addresses.
+	 */
+	public void resolvePlaceholders() {
+		if (loading.get() > 0) {
+			dropWhenLoaded = true;
+		} else {
+			build(true);
+		}
+	}
+
+	/**
+	 * A file started loading. Until it finishes, the graph is only built when asked to.
+	 */
+	public void loadStarted() {
+		loading.incrementAndGet();
+	}
+
+	/**
+	 * A file finished loading. If it was the last one, the graph gets built.
+	 */
+	public void loadFinished() {
+		if (loading.decrementAndGet() == 0) {
+			build(false);
+		}
+	}
+
+	/**
+	 * Something was added on this address, references waiting for it can be resolved on the next build.
+	 */
+	void addressAdded(long address) {
+		if (waiting.isEmpty()) {
+			return;
+		}
+		final var elements = waiting.remove(address);
+		if (elements != null) {
+			for (ReferencingElement element : elements) {
+				synchronized (element) {
+					if (element.pendingReferences != null) {
+						queue(element);
+					}
+				}
+			}
+		}
+	}
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * Rows built from now on go off heap, or back to the heap. Rows already built stay where they are until the next
+	 * build, which copies them. Only the rows move, elements stay on the heap.
+	 */
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	public synchronized void clear() {
+		pending.clear();
+		waiting.clear();
+		snapshot = Snapshot.EMPTY;
+		generation++;
+	}
+
+	/**
+	 * The graph once built, to save it. References still waiting for a placeholder stay on their elements.
+	 *
+	 * @return The elements on the graph by id, and the offsets and targets of the rows with their references, who
+	 * references them and who marked them as referenced.
+	 */
+	Saved save() {
+		information.inflate();
+		build(false);
+		synchronized (this) {
+			final var s = snapshot;
+			return new Saved(Arrays.copyOf(s.elements, s.size), new IntBuffer[]{
+					s.references.offsets, s.references.targets,
+					s.referencing.offsets, s.referencing.targets,
+					s.referencedBy.offsets, s.referencedBy.targets});
+		}
+	}
+
+	/**
+	 * Replaces the graph with rows saved before. The buffers are only read, they can be mapped from a file.
+	 *
+	 * @param size    How many elements there are on the rows.
+	 * @param missing Creates the element with this id, the first time it is needed.
+	 */
+	synchronized void restore(int size, IntBuffer[] rows, IntFunction<Element> missing) {
+		pending.clear();
+		waiting.clear();
+		generation++;
+		snapshot = new Snapshot(new Element[size], size, new Rows(rows[0], rows[1]), new Rows(rows[2], rows[3]),
+				new Rows(rows[4], rows[5]), missing);
+	}
+
+	/**
+	 * Every element of a restored graph was created, they don't have to be created on demand anymore.
+	 */
+	synchronized void restored(IntFunction<Element> elements) {
+		final var s = snapshot;
+		if (s.missing == null) {
+			return;
+		}
+		final var all = Arrays.copyOf(s.elements, s.size);
+		for (int id = 0; id < s.size; id++) {
+			if (all[id] == null) {
+				all[id] = elements.apply(id);
+			}
+		}
+		snapshot = new Snapshot(all, s.size, s.references, s.referencing, s.referencedBy, null);
+	}
+
+	record Saved(Element[] elements, IntBuffer[] rows) {
+	}
+
+	/**
+	 * The graph with everything waiting built, to undo what is added from now on. See {@link #rollback}.
+	 */
+	Snapshot checkpoint() {
+		// While other files load, their references aren't on the graph until they finish
+		return built();
+	}
+
+	/**
+	 * Undoes a load: drops the elements it added, and the references it added to elements that were there before.
+	 * References that were on the graph at the checkpoint are kept, even if the load added them again.
+	 *
+	 * @param before       The graph when the load started.
+	 * @param removed      Elements that were added by the load.
+	 * @param references   Pairs of an element that was there before and what the load made it reference.
+	 * @param referencedBy Pairs of an element that was there before and what the load marked it as referenced by.
+	 */
+	synchronized void rollback(Snapshot before, Set<Element> removed, List<Element> references,
+							   List<Element> referencedBy) {
+		// Built before, see Information#rollback
+		final var added = added(references);
+		final var addedBy = added(referencedBy);
+
+		// References still waiting on the elements, not resolved placeholders included
+		waiting.replaceAll((address, elements) ->
+				elements.stream().filter(e -> !removed.contains(e)).toList());
+		for (var entry : added.entrySet()) {
+			if (entry.getKey() instanceof ReferencingElement re) {
+				synchronized (re) {
+					if (re.pendingReferences != null && re.pendingReferences.removeIf(entry.getValue()::contains)) {
+						re.pendingReferences = null;
+					}
+				}
+			}
+		}
+		for (Element e : removed) {
+			synchronized (e) {
+				e.pendingReferencedBy = null;
+				if (e instanceof ReferencingElement re) {
+					re.pendingReferences = null;
+				}
+			}
+		}
+
+		final var s = snapshot;
+		final var forward = remove(s, s.references, before, before.references, removed, added);
+		snapshot = new Snapshot(s.elements, s.size, forward, transpose(forward),
+				remove(s, s.referencedBy, before, before.referencedBy, removed, addedBy), null);
+	}
+
+	// What was added to each element, by identity or by the address of the placeholder
+	private static Map<Element, Added> added(List<Element> pairs) {
+		final Map<Element, Added> added = new IdentityHashMap<>();
+		for (int i = 0; i < pairs.size(); i += 2) {
+			added.computeIfAbsent(pairs.get(i), e -> new Added()).add(pairs.get(i + 1));
+		}
+		return added;
+	}
+
+	// Copies the rows without the removed elements and what was added to the rest since before
+	private Rows remove(Snapshot s, Rows rows, Snapshot before, Rows rowsBefore, Set<Element> removed,
+						Map<Element, Added> added) {
+		final int size = rows.size();
+		final IntBuffer offsets = allocate(size + 1);
+		final int[] kept = new int[rows.count()];
+		int count = 0;
+		for (int id = 0; id < size; id++) {
+			final var element = s.element(id);
+			if (!removed.contains(element)) {
+				final var addedHere = added.get(element);
+				final int idBefore = addedHere == null ? -1 : before.idOf(element);
+				for (int i = rows.start(id); i < rows.end(id); i++) {
+					final int target = rows.targets.get(i);
+					final var referenced = s.element(target);
+					if (!removed.contains(referenced) && (addedHere == null || !addedHere.contains(referenced)
+							|| (idBefore >= 0 && before.idOf(referenced) >= 0
+							&& contains(rowsBefore, rowsBefore.start(idBefore), rowsBefore.end(idBefore), target)))) {
+						kept[count++] = target;
+					}
+				}
+			}
+			offsets.put(id + 1, count);
+		}
+		final IntBuffer targets = allocate(count);
+		targets.put(0, kept, 0, count);
+		return new Rows(offsets, targets);
+	}
+
+	/**
+	 * Elements added to an element, placeholders match whatever is on their address.
+	 */
+	private static final class Added {
+		private final Set<Element> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final Set<String> addresses = new HashSet<>();
+
+		void add(Element e) {
+			if (e instanceof PlaceHolderElement placeholder) {
+				addresses.add(placeholder.getAddress());
+			} else {
+				elements.add(e);
+			}
+		}
+
+		boolean contains(Element e) {
+			return elements.contains(e) || (e.getAddress() != null && addresses.contains(e.getAddress()));
+		}
+	}
+
+	private void build(boolean dropUnresolved) {
+		if (pending.isEmpty() && !dropUnresolved && !dropWhenLoaded) {
+			return;
+		}
+		synchronized (building) {
+			if (dropUnresolved || dropWhenLoaded) {
+				dropWhenLoaded = false;
+				dropWaiting();
+				dropUnresolved = true;
+			}
+			final var drained = new ArrayList<Element>();
+			for (Element e = pending.poll(); e != null; e = pending.poll()) {
+				drained.add(e);
+			}
+			if (drained.isEmpty()) {
+				return;
+			}
+
+			final int count = drained.size();
+			final Element[][] references = new Element[count][];
+			final Element[][] referencedBy = new Element[count][];
+			for (int i = 0; i < count; i++) {
+				final var element = drained.get(i);
+				synchronized (element) {
+					element.onGraphQueue = false;
+					if (element.pendingReferencedBy != null) {
+						referencedBy[i] = element.pendingReferencedBy.toArray();
+						element.pendingReferencedBy = null;
+					}
+					if (element instanceof ReferencingElement re && re.pendingReferences != null) {
+						references[i] = re.pendingReferences.toArray();
+						re.pendingReferences = null;
+					}
+				}
+			}
+
+			// Each element only touches its own references, and finding an address takes no lock of the graph
+			final Edges[] unresolved = new Edges[count];
+			final boolean drop = dropUnresolved;
+			final var all = IntStream.range(0, count);
+			(count > PARALLEL_THRESHOLD ? all.parallel() : all).forEach(i -> {
+				if (references[i] != null) {
+					unresolved[i] = resolvePlaceholders((ReferencingElement) drained.get(i), references[i], drop);
+				}
+			});
+			for (int i = 0; i < count; i++) {
+				if (unresolved[i] != null) {
+					waitFor((ReferencingElement) drained.get(i), unresolved[i]);
+				}
+			}
+
+			while (true) {
+				final Snapshot base;
+				final long generation;
+				synchronized (this) {
+					base = this.snapshot;
+					generation = this.generation;
+				}
+				final var next = merge(base, drained, references, referencedBy);
+				synchronized (this) {
+					if (this.generation != generation) {
+						// Cleared or replaced meanwhile, what we built belongs to what was there before
+						return;
+					}
+					if (this.snapshot == base) {
+						this.snapshot = next;
+						return;
+					}
+				}
+				// Rolled back or restored meanwhile, build on top of that instead
+			}
+		}
+	}
+
+	/**
+	 * The placeholders go back to their element, and the element is built again when something is added on any of
+	 * their addresses.
+	 */
+	private void waitFor(ReferencingElement element, Edges placeholders) {
+		synchronized (element) {
+			if (element.pendingReferences == null) {
+				element.pendingReferences = new Edges();
+			}
+			for (Element placeholder : placeholders.toArray()) {
+				element.pendingReferences.add(placeholder);
+			}
+		}
+		for (Element placeholder : placeholders.toArray()) {
+			final long address = AddressIndex.parse(placeholder.getAddress());
+			waiting.compute(address, (a, elements) -> {
+				final var result = elements == null ? new ArrayList<ReferencingElement>() : new ArrayList<>(elements);
+				result.add(element);
+				return result;
+			});
+			// It may have been added while we were looking for it
+			if (information.getByAddress(placeholder.getAddress()) != null) {
+				addressAdded(address);
+			}
+		}
+	}
+
+	private void dropWaiting() {
+		for (Long address : List.copyOf(waiting.keySet())) {
+			final var elements = waiting.remove(address);
+			if (elements != null) {
+				for (ReferencingElement element : elements) {
+					synchronized (element) {
+						if (element.pendingReferences != null
+								&& element.pendingReferences.removeIf(e -> e instanceof PlaceHolderElement)) {
+							element.pendingReferences = null;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// The base graph with the references drained from the elements. Doesn't change the base
+	private Snapshot merge(Snapshot base, List<Element> drained, Element[][] references, Element[][] referencedBy) {
+		final var ids = new Ids(base);
+		final var newReferences = new IntList();
+		final var newReferencedBy = new IntList();
+		for (int i = 0; i < drained.size(); i++) {
+			if (references[i] != null) {
+				final int id = ids.of(drained.get(i));
+				for (Element reference : references[i]) {
+					if (reference != null) {
+						newReferences.add(id, ids.of(reference));
+					}
+				}
+			}
+			if (referencedBy[i] != null) {
+				final int id = ids.of(drained.get(i));
+				for (Element by : referencedBy[i]) {
+					newReferencedBy.add(id, ids.of(by));
+				}
+			}
+		}
+
+		// Restored elements are still only created when something needs them, grouping creates the ones it sorts
+		final var next = new Snapshot(ids.elements, ids.size, Rows.EMPTY, Rows.EMPTY, Rows.EMPTY, base.missing);
+		final var added = new IntList();
+		final var forward = merge(base.references, ids.size, newReferences, row -> groupByType(row, next), added);
+		final var backward = merge(base.referencing, ids.size, added.transposed(), ReferenceGraph::sortById, null);
+		final var marked = merge(base.referencedBy, ids.size, newReferencedBy, ReferenceGraph::sortById, null);
+		return new Snapshot(ids.elements, ids.size, forward, backward, marked, base.missing);
+	}
+
+	/**
+	 * Adds edges to the rows. Only the rows getting new edges are sorted again, the rest are copied as they are.
+	 *
+	 * @param order Sorts a row, repeated ids are already removed.
+	 * @param added If not null, gets the edges that were not on the rows yet.
+	 */
+	private Rows merge(Rows old, int size, IntList edges, Consumer<int[]> order, IntList added) {
+		final int oldSize = old.size();
+		// Edges sorted by the id they start from, so each row getting new edges is together
+		final long[] sorted = new long[edges.size / 2];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = ((long) edges.values[2 * i] << 32) | (edges.values[2 * i + 1] & 0xFFFFFFFFL);
+		}
+		Arrays.sort(sorted);
+		final var touchedIds = new IntList();
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || (sorted[i] >>> 32) != (sorted[i - 1] >>> 32)) {
+				touchedIds.add((int) (sorted[i] >>> 32), i);
+			}
+		}
+		final int touched = touchedIds.size / 2;
+
+		final int[][] rows = new int[touched][];
+		final int[][] newTargets = added == null ? null : new int[touched][];
+		final var all = IntStream.range(0, touched);
+		(touched > PARALLEL_THRESHOLD ? all.parallel() : all).forEach(t -> {
+			final int id = touchedIds.values[2 * t];
+			final int from = touchedIds.values[2 * t + 1];
+			final int to = t + 1 < touched ? touchedIds.values[2 * t + 3] : sorted.length;
+			final int start = id < oldSize ? old.start(id) : 0;
+			final int end = id < oldSize ? old.end(id) : 0;
+			final int[] before = new int[end - start];
+			old.targets.get(start, before);
+			Arrays.sort(before);
+			final int[] row = Arrays.copyOf(before, before.length + to - from);
+			final int[] fresh = new int[to - from];
+			int freshCount = 0;
+			for (int i = from; i < to; i++) {
+				final int target = (int) sorted[i];
+				if (Arrays.binarySearch(before, target) < 0
+						&& (freshCount == 0 || fresh[freshCount - 1] != target)) {
+					fresh[freshCount++] = target;
+				}
+			}
+			System.arraycopy(fresh, 0, row, before.length, freshCount);
+			rows[t] = Arrays.copyOf(row, before.length + freshCount);
+			order.accept(rows[t]);
+			if (newTargets != null) {
+				newTargets[t] = Arrays.copyOf(fresh, freshCount);
+			}
+		});
+		if (added != null) {
+			for (int t = 0; t < touched; t++) {
+				for (int target : newTargets[t]) {
+					added.add(touchedIds.values[2 * t], target);
+				}
+			}
+		}
+
+		int total = old.count();
+		for (int t = 0; t < touched; t++) {
+			final int id = touchedIds.values[2 * t];
+			total += rows[t].length - (id < oldSize ? old.end(id) - old.start(id) : 0);
+		}
+		final IntBuffer offsets = allocate(size + 1);
+		final IntBuffer targets = allocate(total);
+		int position = 0;
+		int t = 0;
+		int id = 0;
+		while (id < size) {
+			if (t < touched && touchedIds.values[2 * t] == id) {
+				targets.put(position, rows[t]);
+				position += rows[t].length;
+				offsets.put(++id, position);
+				t++;
+			} else {
+				// Copy at once the rows up to the next one getting new edges
+				final int until = Math.min(t < touched ? touchedIds.values[2 * t] : size, Math.max(id, oldSize));
+				if (until > id) {
+					final int start = old.start(id);
+					targets.put(position, old.targets, start, old.end(until - 1) - start);
+					for (; id < until; id++) {
+						offsets.put(id + 1, position + old.end(id) - start);
+					}
+					position = offsets.get(id);
+				} else {
+					offsets.put(++id, position);
+				}
+			}
+		}
+		return new Rows(offsets, targets);
+	}
+
+	private static void sortById(int[] row) {
+		Arrays.sort(row);
+	}
+
+	// By type and then id, so references can be read in that order without sorting them
+	private static void groupByType(int[] row, Snapshot snapshot) {
+		final var types = new String[row.length];
+		final Map<String, Integer> ranks = new HashMap<>();
+		for (int i = 0; i < row.length; i++) {
+			types[i] = snapshot.element(row[i]).getType();
+			ranks.putIfAbsent(types[i], 0);
+		}
+		if (ranks.size() > 1) {
+			final var sorted = new ArrayList<>(ranks.keySet());
+			Collections.sort(sorted);
+			for (int i = 0; i < sorted.size(); i++) {
+				ranks.put(sorted.get(i), i);
+			}
+		}
+		final long[] keys = new long[row.length];
+		for (int i = 0; i < row.length; i++) {
+			keys[i] = ((long) ranks.get(types[i]) << 32) | row[i];
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < row.length; i++) {
+			row[i] = (int) keys[i];
+		}
+	}
+
+	/**
+	 * Replaces placeholders with what is on their address, or with null if they have to be dropped.
+	 *
+	 * @return Placeholders that have to wait, or null if there are none
+	 */
+	private Edges resolvePlaceholders(ReferencingElement element, Element[] references, boolean dropUnresolved) {
+		Edges waiting = null;
+		for (int i = 0; i < references.length; i++) {
+			if (references[i] instanceof PlaceHolderElement placeholder) {
+				final var found = information.getByAddress(placeholder.getAddress());
+				// Nothing can ever be found on an address that can't be parsed
+				if (found == null && !dropUnresolved && isAddress(placeholder.getAddress())) {
+					if (waiting == null) {
+						waiting = new Edges();
+					}
+					waiting.add(placeholder);
+				}
+				references[i] = found == element ? null : found;
+			}
+		}
+		return waiting;
+	}
+
+	private static boolean isAddress(String address) {
+		try {
+			AddressIndex.parse(address);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	// Rows come out sorted because sources are visited in order
+	private Rows transpose(Rows rows) {
+		final int size = rows.size();
+		final IntBuffer offsets = allocate(size + 1);
+		for (int i = 0; i < rows.count(); i++) {
+			final int target = rows.targets.get(i);
+			offsets.put(target + 1, offsets.get(target + 1) + 1);
+		}
+		for (int id = 0; id < size; id++) {
+			offsets.put(id + 1, offsets.get(id + 1) + offsets.get(id));
+		}
+		final IntBuffer targets = allocate(rows.count());
+		final int[] next = new int[size];
+		for (int id = 0; id < size; id++) {
+			next[id] = offsets.get(id);
+		}
+		for (int id = 0; id < size; id++) {
+			for (int i = rows.start(id); i < rows.end(id); i++) {
+				targets.put(next[rows.targets.get(i)]++, id);
+			}
+		}
+		return new Rows(offsets, targets);
+	}
+
+	private IntBuffer allocate(int ints) {
+		if (offHeap && ints > 0) {
+			try {
+				return mapped(ints);
+			} catch (IOException | IllegalArgumentException e) {
+				QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+						new AttributedString("Couldn't keep references off heap: " + e.getMessage(),
+								AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+			}
+		}
+		return IntBuffer.wrap(new int[ints]);
+	}
+
+	// A temporary file mapped in memory, the operating system decides how much of it stays in memory.
+	// A single mapping can't go over 2GB, bigger rows stay on the heap.
+	private static IntBuffer mapped(int ints) throws IOException {
+		final var file = Files.createTempFile("leyden-analyzer-", ".graph");
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE)) {
+			// The mapping stays valid after closing the channel, until the buffer is garbage collected
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) ints * Integer.BYTES)
+					.order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+	}
+
+	/**
+	 * Compressed sparse rows, there is one row per element on the graph.
+	 * Buffers are only read with absolute gets, so they can be shared between threads.
+	 */
+	private record Rows(IntBuffer offsets, IntBuffer targets) {
+		static final Rows EMPTY = new Rows(IntBuffer.wrap(new int[1]), IntBuffer.wrap(new int[0]));
+
+		int size() {
+			return offsets.limit() - 1;
+		}
+
+		int count() {
+			return targets.limit();
+		}
+
+		int start(int id) {
+			return offsets.get(id);
+		}
+
+		int end(int id) {
+			return offsets.get(id + 1);
+		}
+	}
+
+	/**
+	 * The graph as it was on the last build. It never changes, so it can be read without locking.
+	 * A graph restored from a snapshot has no elements until they are needed, {@code missing} creates them. Elements
+ * added to the graph after restoring it are on {@code elements}.
+	 */
+	record Snapshot(Element[] elements, int size, Rows references, Rows referencing, Rows referencedBy,
+							IntFunction<Element> missing) {
+		static final Snapshot EMPTY = new Snapshot(new Element[0], 0, Rows.EMPTY, Rows.EMPTY, Rows.EMPTY, null);
+
+		Element element(int id) {
+			final var e = elements[id];
+			return e != null || missing == null ? e : missing.apply(id);
+		}
+
+		int idOf(Element element) {
+			final int id = element.graphId;
+			return id >= 0 && id < size && element(id) == element ? id : -1;
+		}
+
+		List<Element> row(Rows rows, int id) {
+			return new RowView(this, rows, id);
+		}
+	}
+
+	/**
+	 * A row read as a list of elements.
+	 */
+	private static final class RowView extends AbstractList<Element> implements RandomAccess {
+		private final Snapshot snapshot;
+		private final IntBuffer targets;
+		private final int start;
+		private final int size;
+
+		RowView(Snapshot snapshot, Rows rows, int id) {
+			this.snapshot = snapshot;
+			this.targets = rows.targets;
+			this.start = rows.start(id);
+			this.size = rows.end(id) - start;
+		}
+
+		@Override
+		public Element get(int index) {
+			Objects.checkIndex(index, size);
+			return snapshot.element(targets.get(start + index));
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Gives ids to the elements that are not on the graph yet.
+	 */
+	private static final class Ids {
+		private final Snapshot snapshot;
+		private Element[] elements;
+		private int size;
+
+		Ids(Snapshot snapshot) {
+			this.snapshot = snapshot;
+			this.elements = snapshot.elements;
+			this.size = snapshot.size;
+		}
+
+		int of(Element element) {
+			final int id = element.graphId;
+			if (id >= 0 && (snapshot.idOf(element) == id || (id < size && elements[id] == element))) {
+				return id;
+			}
+			// Slots past the size of the snapshot are not read by anyone, so the array is only copied to grow
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, Math.max(1024, size * 2));
+			}
+			elements[size] = element;
+			element.graphId = size;
+			return size++;
+		}
+	}
+
+	/**
+	 * Pairs of ints: an id and an id it is related to.
+	 */
+	private static final class IntList {
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int id, int related) {
+			if (size + 2 > values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[size++] = id;
+			values[size++] = related;
+		}
+
+		IntList transposed() {
+			final var result = new IntList();
+			result.values = new int[Math.max(2, size)];
+			for (int i = 0; i < size; i += 2) {
+				result.values[i] = values[i + 1];
+				result.values[i + 1] = values[i];
+			}
+			result.size = size;
+			return result;
+		}
+	}
+
+	/**
+	 * References waiting on an element to be moved to the graph. Only accessed holding the lock of the element.
+	 */
+	static final class Edges {
+		// Small enough to look for repeated elements before adding
+		private static final int SCAN_LIMIT = 8;
+
+		private Element[] elements = new Element[4];
+		private int size;
+
+		void add(Element element) {
+			if (size <= SCAN_LIMIT) {
+				for (int i = 0; i < size; i++) {
+					if (elements[i].equals(element)) {
+						return;
+					}
+				}
+			}
+			if (size == elements.length) {
+				if (size > SCAN_LIMIT) {
+					removeRepeated();
+				}
+				if (size > elements.length / 2) {
+					elements = Arrays.copyOf(elements, elements.length * 2);
+				}
+			}
+			elements[size++] = element;
+		}
+
+		private void removeRepeated() {
+			final var unique = new LinkedHashSet<>(Arrays.asList(elements).subList(0, size));
+			Arrays.fill(elements, null);
+			size = 0;
+			for (Element element : unique) {
+				elements[size++] = element;
+			}
+		}
+
+		Element[] toArray() {
+			return Arrays.copyOf(elements, size);
+		}
+
+		/**
+		 * @return True if nothing is left.
+		 */
+		boolean removeIf(Predicate<Element> filter) {
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				if (!filter.test(elements[i])) {
+					elements[kept++] = elements[i];
+				}
+			}
+			Arrays.fill(elements, kept, size, null);
+			size = kept;
+			return size == 0;
+		}
+	}
+}
@@ -4,18 +4,17 @@ package tooling.leyden.aotcache;
 import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStringBuilder;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Elements that refer to other types of elements. For example: An element in the ConstantPool may be of certain
  * class, which is defined and loaded on the Information independently.
  **/
 public class ReferencingElement extends Element {
-	private Set<Element> references = new HashSet<>();
+	// References waiting to be moved to the ReferenceGraph
+	ReferenceGraph.Edges pendingReferences;
 	private String name;
 
 	public ReferencingElement(String name, String type) {
@@ -36,25 +35,36 @@ public class ReferencingElement extends Element {
 		return name;
 	}
 
+	/**
+	 * Elements this one references, grouped by type.
+	 */
 	public List<Element> getReferences() {
-		return this.references.stream().sorted(Comparator.comparing(Element::getType)).toList();
+		return Information.getMyself().getReferenceGraph().getReferences(this);
 	}
 
-	public void addReference(Element reference) {
-		if (!this.references.contains(reference) && this != reference) {
-			this.references.add(reference);
-			reference.markAsReferenced(this);
-		}
+	/**
+	 * Whether any of the elements this one references matches. They are checked in no particular order, without
+	 * building a list of them.
+	 */
+	public boolean anyReference(Predicate<Element> predicate) {
+		return Information.getMyself().getReferenceGraph().anyReference(this, predicate);
+	}
+
+	/**
+	 * Runs the action on each element this one references, in no particular order, without building a list of them.
+	 */
+	public void forEachReference(Consumer<Element> action) {
+		anyReference(e -> {
+			action.accept(e);
+			return false;
+		});
 	}
 
-	public void resolvePlaceholders() {
-		List<Element> refs = new ArrayList<>();
-		refs.addAll(references);
-		refs.replaceAll(element ->
-						(element instanceof PlaceHolderElement) ?
-								Information.getMyself().getByAddress(element.getAddress()) : element);
-		references.clear();
-		references.addAll(refs);
-		references.remove(null);
+	public void addReference(Element reference) {
+		if (this != reference) {
+			Information.getMyself().getReferenceGraph().addReference(this, reference);
+			Information.indexReference(this, reference);
+			Information.referenceAdded(this, reference);
+		}
 	}
 }
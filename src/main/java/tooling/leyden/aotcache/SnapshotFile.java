@@ -0,0 +1,1024 @@
+package tooling.leyden.aotcache;
+
+import org.jline.utils.AttributedString;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * An analysis saved to a binary file, so it can be loaded again without parsing the files it came from.
+ * <p>
+ * Loading maps the file in memory and creates elements only when something looks for them: by key and type, by
+ * address, or following the rows of the {@link ReferenceGraph}. Anything going through all the elements creates the
+ * rest of them first, see {@link Information#inflate()}.
+ * <p>
+ * The file starts with a header: a magic number, the version of the format and where each section is. Each section is
+ * mapped on its own, so it must be smaller than 2GB:
+ * <ul>
+ *     <li>Strings: how many there are, where each one starts, and then each one as its length in bytes followed by
+ *     its UTF-8 bytes. The rest of the file refers to them by position.</li>
+ *     <li>Elements: one record per element, with its fields and the ids of the elements its fields point to.</li>
+ *     <li>Element offsets: where the record of each element starts.</li>
+ *     <li>Graph: the rows of the {@link ReferenceGraph} as they are in memory. Elements on the graph keep their graph
+ *     id as their id on the file, so the rows are used from the mapped file, nothing is rebuilt.</li>
+ *     <li>Information: heap roots, configuration, statistics and warnings.</li>
+ *     <li>Keys: open addressing table with the id of each element by its key and type.</li>
+ *     <li>Addresses: sorted addresses, with the id of the element on each one.</li>
+ *     <li>Summary: what the status bar and the auto-completions show, so they don't need the elements.</li>
+ * </ul>
+ * Numbers are little endian. Missing strings and elements are -1.
+ */
+public final class SnapshotFile {
+
+	private static final int MAGIC = 0x4C594453; // LYDS
+	/**
+	 * Of the format. Files saved with any other version can't be loaded.
+	 */
+	public static final int VERSION = 2;
+
+	private static final int STRINGS = 0;
+	private static final int ELEMENTS = 1;
+	private static final int ELEMENT_OFFSETS = 2;
+	private static final int GRAPH = 3;
+	private static final int INFORMATION = 4;
+	private static final int KEYS = 5;
+	private static final int ADDRESSES = 6;
+	private static final int SUMMARY = 7;
+	private static final int SECTIONS = 8;
+	private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 2 * SECTIONS;
+
+	// Kinds of element, each one with its own fields
+	private static final byte BASIC = 0;
+	private static final byte PLACEHOLDER = 1;
+	private static final byte CONSTANT_POOL = 2;
+	private static final byte REFERENCING = 3;
+	private static final byte CLASS = 4;
+	private static final byte METHOD = 5;
+	private static final byte INSTANCE = 6;
+
+	// Where the element is on the Information
+	private static final byte DETACHED = 0;
+	private static final byte CACHED = 1;
+	private static final byte EXTERNAL = 2;
+
+	// Records start with the kind, where it is, and the strings of its type, key, name and address
+	private static final int ADDRESS_IN_RECORD = 2 + Integer.BYTES * 3;
+
+	// Each slot of the keys table: hash, key, type and id
+	private static final int KEY_SLOT = Integer.BYTES * 4;
+
+	// Types of configuration values
+	private static final byte STRING = 0;
+	private static final byte INTEGER = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte BOOLEAN = 4;
+
+	private final Information information;
+	private final Strings strings;
+	private final ByteBuffer records;
+	private final ByteBuffer offsets;
+	private final ByteBuffer keys;
+	private final ByteBuffer addresses;
+	private final int size;
+	private final int graphSize;
+	private final int cached;
+	private final int external;
+	private final List<String> types;
+	private final List<String> packages;
+	private final List<String> identifiers;
+	private List<String> heapRootAddresses;
+
+	// Elements already on the information, only written here once complete
+	private final AtomicReferenceArray<Element> created;
+	// Elements being created and the ones they need, only used holding the lock of the information
+	private final Map<Integer, Element> creating = new HashMap<>();
+	private final List<Created> batch = new ArrayList<>();
+	private int depth = 0;
+
+	private SnapshotFile(Information information, ByteBuffer[] sections) {
+		this.information = information;
+		this.strings = new Strings(sections[STRINGS]);
+		this.records = sections[ELEMENTS];
+		this.offsets = sections[ELEMENT_OFFSETS];
+		this.keys = sections[KEYS];
+		this.addresses = sections[ADDRESSES];
+		this.size = offsets.getInt(0);
+		this.graphSize = offsets.getInt(Integer.BYTES);
+		this.created = new AtomicReferenceArray<>(size);
+		final var summary = new Cursor(sections[SUMMARY], 0);
+		this.cached = summary.getInt();
+		this.external = summary.getInt();
+		this.types = readStrings(summary);
+		this.packages = readStrings(summary);
+		this.identifiers = readStrings(summary);
+	}
+
+	/**
+	 * @return How many elements were saved.
+	 */
+	public static int save(Information information, Path file) throws IOException {
+		final var graph = information.getReferenceGraph().save();
+		final var ids = new ElementIds();
+		for (Element e : graph.elements()) {
+			ids.of(e);
+		}
+		information.getAll().forEach(e -> ids.of(e, CACHED));
+		information.getExternalElements().values().forEach(e -> ids.of(e, EXTERNAL));
+		if (information.getHeapRoot() != null) {
+			ids.of(information.getHeapRoot());
+		}
+		forEachWarningElement(information.getWarnings(), ids::of);
+		forEachWarningElement(information.getAutoWarnings(), ids::of);
+		// Elements reach others through their fields, those need an id too
+		for (int id = 0; id < ids.elements.size(); id++) {
+			forEachLink(ids.elements.get(id), ids::of);
+		}
+
+		final var strings = new StringTable();
+		final long[] sections = new long[SECTIONS * 2];
+		try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			try (var out = new Output(channel, HEADER_SIZE)) {
+				final int[] offsets = new int[ids.elements.size()];
+				long start = out.position();
+				for (int id = 0; id < offsets.length; id++) {
+					checkSize(out.position() - start);
+					offsets[id] = (int) (out.position() - start);
+					writeElement(out, ids.elements.get(id), ids, strings);
+				}
+				section(sections, ELEMENTS, start, out.position());
+
+				start = out.position();
+				out.putInt(offsets.length);
+				out.putInt(graph.elements().length);
+				for (int offset : offsets) {
+					out.putInt(offset);
+				}
+				section(sections, ELEMENT_OFFSETS, start, out.position());
+
+				start = out.position();
+				for (IntBuffer rows : graph.rows()) {
+					out.putInt(rows.limit());
+					for (int i = 0; i < rows.limit(); i++) {
+						out.putInt(rows.get(i));
+					}
+				}
+				section(sections, GRAPH, start, out.position());
+
+				start = out.position();
+				writeInformation(out, information, ids, strings);
+				section(sections, INFORMATION, start, out.position());
+
+				start = out.position();
+				writeKeys(out, ids, strings);
+				section(sections, KEYS, start, out.position());
+
+				start = out.position();
+				writeAddresses(out, information, ids);
+				section(sections, ADDRESSES, start, out.position());
+
+				start = out.position();
+				out.putInt(information.countCached());
+				out.putInt(information.countExternal());
+				writeStrings(out, strings, information.getAllTypes());
+				writeStrings(out, strings, information.getAllPackages());
+				writeStrings(out, strings, information.getIdentifiers());
+				section(sections, SUMMARY, start, out.position());
+
+				start = out.position();
+				strings.write(out);
+				section(sections, STRINGS, start, out.position());
+			}
+
+			// Last, so a file that didn't get to the end can't be loaded
+			final var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION);
+			for (long value : sections) {
+				header.putLong(value);
+			}
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+		return ids.elements.size();
+	}
+
+	/**
+	 * Replaces what is on the information with what was saved on the file. Elements are created when they are looked
+	 * for.
+	 *
+	 * @return How many elements were saved on the file.
+	 */
+	public static int load(Information information, Path file) throws IOException {
+		final var sections = new ByteBuffer[SECTIONS];
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("Not a saved analysis.");
+			}
+			final var header = map(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a saved analysis.");
+			}
+			final int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Saved with version " + version + " of the format, only version " + VERSION
+						+ " can be read.");
+			}
+			for (int i = 0; i < SECTIONS; i++) {
+				final long offset = header.getLong();
+				final long length = header.getLong();
+				if (offset < HEADER_SIZE || length < 0 || offset + length > channel.size()) {
+					throw new IOException("The file is incomplete.");
+				}
+				// Mappings stay valid after closing the channel
+				sections[i] = map(channel, offset, length);
+			}
+		}
+
+		final var graph = new Cursor(sections[GRAPH], 0);
+		final var rows = new IntBuffer[6];
+		for (int i = 0; i < rows.length; i++) {
+			final int length = graph.getInt();
+			rows[i] = sections[GRAPH].slice(graph.position, length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+					.asIntBuffer();
+			graph.position += length * Integer.BYTES;
+		}
+
+		synchronized (information) {
+			// Elements intern what they share when they are created, so the pool has to be empty by then
+			information.clear();
+			final var snapshot = new SnapshotFile(information, sections);
+			information.getReferenceGraph().restore(snapshot.graphSize, rows, snapshot::element);
+			information.attach(snapshot);
+			snapshot.readInformation(new Cursor(sections[INFORMATION], 0));
+			return snapshot.size;
+		}
+	}
+
+	/**
+	 * The element with this id on the file, created if it wasn't yet.
+	 */
+	Element element(int id) {
+		if (id < 0) {
+			return null;
+		}
+		final var e = created.get(id);
+		if (e != null) {
+			return e;
+		}
+		synchronized (information) {
+			final var found = created.get(id);
+			if (found != null) {
+				return found;
+			}
+			// Elements point to each other, this one may be halfway
+			final var halfway = creating.get(id);
+			if (halfway != null) {
+				return halfway;
+			}
+			depth++;
+			try {
+				final var result = create(id);
+				if (depth == 1) {
+					publish();
+				}
+				return result;
+			} finally {
+				if (--depth == 0) {
+					creating.clear();
+					batch.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the cached and external elements with this key and type, if they weren't yet.
+	 */
+	void create(Information.Key key) {
+		final int capacity = keys.getInt(0);
+		final int hash = hash(key.identifier(), key.type());
+		for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+			final int at = Integer.BYTES + slot * KEY_SLOT;
+			final int id = keys.getInt(at + Integer.BYTES * 3);
+			if (id < 0) {
+				return;
+			}
+			if (keys.getInt(at) == hash && key.identifier().equals(strings.get(keys.getInt(at + Integer.BYTES)))
+					&& key.type().equals(strings.get(keys.getInt(at + Integer.BYTES * 2)))) {
+				element(id);
+			}
+		}
+	}
+
+	/**
+	 * The cached or external element on this address, created if it wasn't yet.
+	 */
+	Element getByAddress(long address) {
+		final int count = addresses.getInt(0);
+		final long flipped = address ^ Long.MIN_VALUE;
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final long value = addresses.getLong(Integer.BYTES + middle * Long.BYTES);
+			if (value < flipped) {
+				low = middle + 1;
+			} else if (value > flipped) {
+				high = middle - 1;
+			} else {
+				return element(addresses.getInt(Integer.BYTES + count * Long.BYTES + middle * Integer.BYTES));
+			}
+		}
+		return null;
+	}
+
+	void createAll() {
+		for (int id = 0; id < size; id++) {
+			element(id);
+		}
+	}
+
+	int count(boolean cached) {
+		return cached ? this.cached : this.external;
+	}
+
+	List<String> getTypes() {
+		return types;
+	}
+
+	List<String> getPackages() {
+		return packages;
+	}
+
+	List<String> getIdentifiers() {
+		return identifiers;
+	}
+
+	List<String> getHeapRootAddresses() {
+		return heapRootAddresses;
+	}
+
+	List<String> getAddresses() {
+		final int count = addresses.getInt(0);
+		final var result = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			final int id = addresses.getInt(Integer.BYTES + count * Long.BYTES + i * Integer.BYTES);
+			result.add(strings.get(records.getInt(recordOf(id) + ADDRESS_IN_RECORD)));
+		}
+		return result;
+	}
+
+	private int recordOf(int id) {
+		return offsets.getInt(Integer.BYTES * (2 + id));
+	}
+
+	// Reads the element and the elements its fields point to. They go to the information later, see publish
+	private Element create(int id) {
+		final var in = new Cursor(records, recordOf(id));
+		final byte kind = in.get();
+		final byte where = in.get();
+		final var e = readElement(in, kind);
+		if (id < graphSize) {
+			e.graphId = id;
+		}
+		// Before its fields, they may point back to it
+		creating.put(id, e);
+		final var pending = new ArrayList<Element>();
+		readLinks(in, e, pending);
+		batch.add(new Created(id, e, where, pending));
+		return e;
+	}
+
+	// Elements of the batch are complete now. Adding them to the information may create more, they join the batch
+	private void publish() {
+		for (int i = 0; i < batch.size(); i++) {
+			final var c = batch.get(i);
+			if (c.where() != DETACHED) {
+				information.restore(c.element(), c.where() == CACHED);
+			}
+			created.set(c.id(), c.element());
+			// References that were waiting to find what is on the address of a placeholder
+			if (c.element() instanceof ReferencingElement re) {
+				c.pending().forEach(re::addReference);
+			}
+		}
+	}
+
+	private record Created(int id, Element element, byte where, List<Element> pending) {
+	}
+
+	private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void section(long[] sections, int section, long start, long end) throws IOException {
+		checkSize(end - start);
+		sections[section * 2] = start;
+		sections[section * 2 + 1] = end - start;
+	}
+
+	private static void checkSize(long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Too many elements to save them on a single file.");
+		}
+	}
+
+	private static int hash(String key, String type) {
+		final int h = (key.hashCode() * 31 + type.hashCode()) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static void writeElement(Output out, Element e, ElementIds ids, StringTable strings)
+			throws IOException {
+		out.put(switch (e) {
+			case ClassObject c -> CLASS;
+			case MethodObject m -> METHOD;
+			case InstanceObject i -> INSTANCE;
+			case ReferencingElement r -> REFERENCING;
+			case ConstantPoolObject c -> CONSTANT_POOL;
+			case PlaceHolderElement p -> PLACEHOLDER;
+			default -> BASIC;
+		});
+		out.put(ids.where(e));
+		out.putInt(strings.of(e.getType()));
+		out.putInt(strings.of(e.getKey()));
+		out.putInt(strings.of(switch (e) {
+			case ClassObject c -> c.getName();
+			case ReferencingElement r -> r.getName();
+			default -> e.getKey();
+		}));
+		out.putInt(strings.of(e.getAddress()));
+		// Sizes can be -1 too
+		out.put((byte) (e.getSize() == null ? 0 : 1));
+		out.putInt(e.getSize() == null ? 0 : e.getSize());
+		out.put((byte) e.wasLoaded().ordinal());
+		out.put((byte) (e.isHeapRoot() ? 1 : 0));
+		writeStrings(out, strings, e.getSources());
+		writeStrings(out, strings, e.getWhereDoesItComeFrom());
+
+		switch (e) {
+			case ClassObject c -> {
+				out.putInt(strings.of(c.getPackageName()));
+				out.putInt(strings.of(c.getArrayPrefix()));
+				out.put((byte) (c.isClassLoader() ? 1 : 0));
+				final List<Element> methods;
+				final List<Element> symbols;
+				synchronized (c) {
+					methods = new ArrayList<>(c.getMethods());
+					symbols = new ArrayList<>(c.getSymbols());
+				}
+				out.putInt(ids.idOf(c.getKlassTrainingData()));
+				writeElements(out, ids, methods);
+				writeElements(out, ids, symbols);
+			}
+			case MethodObject m -> {
+				final List<String> parameters;
+				final Map<Integer, Element> compileTrainingData;
+				synchronized (m) {
+					parameters = new ArrayList<>(m.getParameters());
+					compileTrainingData = new HashMap<>(m.getCompileTrainingData());
+				}
+				out.putInt(strings.of(m.getRawReturnType()));
+				writeStrings(out, strings, parameters);
+				out.putInt(ids.idOf(m.getClassObject()));
+				out.putInt(ids.idOf(m.getConstMethod()));
+				out.putInt(ids.idOf(m.getMethodData()));
+				out.putInt(ids.idOf(m.getMethodCounters()));
+				out.putInt(ids.idOf(m.getMethodTrainingData()));
+				out.putInt(compileTrainingData.size());
+				for (var level : compileTrainingData.entrySet()) {
+					out.putInt(level.getKey());
+					out.putInt(ids.idOf(level.getValue()));
+				}
+			}
+			case InstanceObject i -> {
+				out.put((byte) (i.isAOTinited() ? 1 : 0));
+				out.putInt(ids.idOf(i.getInstanceOf()));
+			}
+			case ConstantPoolObject c -> {
+				out.putInt(strings.of(c.getConstantPoolCacheAddress()));
+				out.putInt(ids.idOf(c.getPoolHolder()));
+			}
+			default -> {
+			}
+		}
+		if (e instanceof ReferencingElement re) {
+			writeElements(out, ids, List.of(pending(re)));
+		}
+	}
+
+	// Reads up to the elements the fields point to
+	private Element readElement(Cursor in, byte kind) {
+		final String type = strings.get(in.getInt());
+		in.getInt(); // The key, elements make it from their name
+		final String name = strings.get(in.getInt());
+		final String address = strings.get(in.getInt());
+		final boolean hasSize = in.get() == 1;
+		final int size = in.getInt();
+		final var loaded = Element.WhichRun.values()[in.get()];
+		final boolean heapRoot = in.get() == 1;
+		final var sources = readStrings(in);
+		final var whereDoesItComeFrom = readStrings(in);
+
+		final Element e = switch (kind) {
+			case CLASS -> new ClassObject(name, strings.get(in.getInt()), strings.get(in.getInt()), in.get() == 1);
+			case METHOD -> new MethodObject(name, strings.get(in.getInt()), readStrings(in));
+			case INSTANCE -> {
+				final var instance = new InstanceObject(name);
+				instance.setAOTinited(in.get() == 1);
+				yield instance;
+			}
+			case REFERENCING -> new ReferencingElement(name, type);
+			case CONSTANT_POOL -> {
+				final var constantPool = new ConstantPoolObject(name);
+				constantPool.setConstantPoolCacheAddress(strings.get(in.getInt()));
+				yield constantPool;
+			}
+			case PLACEHOLDER -> new PlaceHolderElement(address);
+			default -> new BasicObject(name);
+		};
+		e.setType(type);
+		e.setAddress(address);
+		e.setSize(hasSize ? size : null);
+		e.setLoaded(loaded);
+		e.setHeapRoot(heapRoot);
+		sources.forEach(e::addSource);
+		whereDoesItComeFrom.forEach(e::addWhereDoesItComeFrom);
+		return e;
+	}
+
+	/**
+	 * @param pending Gets the references that were waiting to find what is on the address of a placeholder.
+	 */
+	private void readLinks(Cursor in, Element e, List<Element> pending) {
+		switch (e) {
+			case ClassObject c -> {
+				c.setKlassTrainingData(element(in.getInt()));
+				readElements(in).forEach(method -> c.getMethods().add((MethodObject) method));
+				readElements(in).forEach(symbol -> c.getSymbols().add((ReferencingElement) symbol));
+			}
+			case MethodObject m -> {
+				m.restoreClassObject((ClassObject) element(in.getInt()));
+				m.setConstMethod((BasicObject) element(in.getInt()));
+				m.setMethodData(element(in.getInt()));
+				m.setMethodCounters(element(in.getInt()));
+				m.setMethodTrainingData(element(in.getInt()));
+				final int levels = in.getInt();
+				for (int i = 0; i < levels; i++) {
+					m.getCompileTrainingData().put(in.getInt(), element(in.getInt()));
+				}
+			}
+			case InstanceObject i -> i.restoreInstanceOf((ClassObject) element(in.getInt()));
+			case ConstantPoolObject c -> c.restorePoolHolder((ClassObject) element(in.getInt()));
+			default -> {
+			}
+		}
+		if (e instanceof ReferencingElement) {
+			pending.addAll(readElements(in));
+		}
+	}
+
+	/**
+	 * Elements the fields of this one point to.
+	 */
+	private static void forEachLink(Element e, Consumer<Element> action) {
+		final var linked = new ArrayList<Element>();
+		switch (e) {
+			case ClassObject c -> {
+				synchronized (c) {
+					linked.addAll(c.getMethods());
+					linked.addAll(c.getSymbols());
+				}
+				linked.add(c.getKlassTrainingData());
+			}
+			case MethodObject m -> {
+				synchronized (m) {
+					linked.addAll(m.getCompileTrainingData().values());
+				}
+				linked.addAll(Arrays.asList(m.getClassObject(), m.getConstMethod(), m.getMethodData(),
+						m.getMethodCounters(), m.getMethodTrainingData()));
+			}
+			case InstanceObject i -> linked.add(i.getInstanceOf());
+			case ConstantPoolObject c -> linked.add(c.getPoolHolder());
+			default -> {
+			}
+		}
+		if (e instanceof ReferencingElement re) {
+			linked.addAll(List.of(pending(re)));
+		}
+		for (Element link : linked) {
+			if (link != null) {
+				action.accept(link);
+			}
+		}
+	}
+
+	private static Element[] pending(ReferencingElement e) {
+		synchronized (e) {
+			return e.pendingReferences == null ? new Element[0] : e.pendingReferences.toArray();
+		}
+	}
+
+	private static void writeElements(Output out, ElementIds ids, List<? extends Element> elements)
+			throws IOException {
+		out.putInt(elements.size());
+		for (Element e : elements) {
+			out.putInt(ids.idOf(e));
+		}
+	}
+
+	private List<Element> readElements(Cursor in) {
+		final int count = in.getInt();
+		final var result = new ArrayList<Element>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(element(in.getInt()));
+		}
+		return result;
+	}
+
+	private static void writeKeys(Output out, ElementIds ids, StringTable strings) throws IOException {
+		int count = 0;
+		for (Element e : ids.elements) {
+			if (ids.where(e) != DETACHED) {
+				count++;
+			}
+		}
+		// At most half full
+		final int capacity = Integer.highestOneBit(Math.max(1, count)) * 4;
+		final int[] slots = new int[capacity * 4];
+		for (int slot = 0; slot < capacity; slot++) {
+			slots[slot * 4 + 3] = -1;
+		}
+		for (int id = 0; id < ids.elements.size(); id++) {
+			final var e = ids.elements.get(id);
+			if (ids.where(e) == DETACHED) {
+				continue;
+			}
+			final int hash = hash(e.getKey(), e.getType());
+			int slot = hash & (capacity - 1);
+			while (slots[slot * 4 + 3] >= 0) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			slots[slot * 4] = hash;
+			slots[slot * 4 + 1] = strings.of(e.getKey());
+			slots[slot * 4 + 2] = strings.of(e.getType());
+			slots[slot * 4 + 3] = id;
+		}
+		out.putInt(capacity);
+		for (int value : slots) {
+			out.putInt(value);
+		}
+	}
+
+	// The element getByAddress finds on each address, so the snapshot finds the same one
+	private static void writeAddresses(Output out, Information information, ElementIds ids) throws IOException {
+		final var found = new ArrayList<Long>();
+		for (Element e : ids.elements) {
+			if (ids.where(e) != DETACHED && e.getAddress() != null) {
+				final long address = AddressIndex.parse(e.getAddress());
+				if (information.getByAddress(address) == e) {
+					found.add(address ^ Long.MIN_VALUE);
+				}
+			}
+		}
+		final long[] sorted = found.stream().mapToLong(Long::longValue).sorted().toArray();
+		out.putInt(sorted.length);
+		for (long address : sorted) {
+			out.putLong(address);
+		}
+		for (long address : sorted) {
+			out.putInt(ids.idOf(information.getByAddress(address ^ Long.MIN_VALUE)));
+		}
+	}
+
+	private static void writeInformation(Output out, Information information, ElementIds ids, StringTable strings)
+			throws IOException {
+		out.putInt(ids.idOf(information.getHeapRoot()));
+		final List<String> heapRootAddresses;
+		synchronized (information.getHeapRootAddresses()) {
+			heapRootAddresses = new ArrayList<>(information.getHeapRootAddresses());
+		}
+		writeStrings(out, strings, heapRootAddresses);
+		writeConfiguration(out, strings, information.getConfiguration());
+		writeConfiguration(out, strings, information.getStatistics());
+		writeWarnings(out, information.getWarnings(), ids, strings);
+		writeWarnings(out, information.getAutoWarnings(), ids, strings);
+	}
+
+	// Only creates the heap root and the elements with warnings
+	private void readInformation(Cursor in) {
+		final var heapRoot = element(in.getInt());
+		if (heapRoot != null) {
+			information.setHeapRoot((ReferencingElement) heapRoot);
+		}
+		// They go to the information when the rest of the elements are created, see Information#inflate
+		heapRootAddresses = readStrings(in);
+		readConfiguration(in, information.getConfiguration());
+		readConfiguration(in, information.getStatistics());
+		readWarnings(in).forEach(information::addWarning);
+		information.getAutoWarnings().addAll(readWarnings(in));
+	}
+
+	private static void writeConfiguration(Output out, StringTable strings, Configuration configuration)
+			throws IOException {
+		final var keys = new ArrayList<>(configuration.getKeys());
+		out.putInt(keys.size());
+		for (String key : keys) {
+			out.putInt(strings.of(key));
+			switch (configuration.getValue(key)) {
+				case Integer i -> {
+					out.put(INTEGER);
+					out.putInt(i);
+				}
+				case Long l -> {
+					out.put(LONG);
+					out.putLong(l);
+				}
+				case Double d -> {
+					out.put(DOUBLE);
+					out.putLong(Double.doubleToRawLongBits(d));
+				}
+				case Boolean b -> {
+					out.put(BOOLEAN);
+					out.put((byte) (b ? 1 : 0));
+				}
+				default -> {
+					out.put(STRING);
+					out.putInt(strings.of(configuration.getValue(key).toString()));
+				}
+			}
+		}
+	}
+
+	private void readConfiguration(Cursor in, Configuration configuration) {
+		final int count = in.getInt();
+		for (int i = 0; i < count; i++) {
+			final String key = strings.get(in.getInt());
+			configuration.addValue(key, switch (in.get()) {
+				case INTEGER -> in.getInt();
+				case LONG -> in.getLong();
+				case DOUBLE -> Double.longBitsToDouble(in.getLong());
+				case BOOLEAN -> in.get() == 1;
+				default -> strings.get(in.getInt());
+			});
+		}
+	}
+
+	private static void forEachWarningElement(List<Warning> warnings, Consumer<Element> action) {
+		synchronized (warnings) {
+			warnings.forEach(warning -> warning.getElements().forEach(action));
+		}
+	}
+
+	private static void writeWarnings(Output out, List<Warning> warnings, ElementIds ids, StringTable strings)
+			throws IOException {
+		final List<Warning> copy;
+		synchronized (warnings) {
+			copy = new ArrayList<>(warnings);
+		}
+		out.putInt(copy.size());
+		for (Warning warning : copy) {
+			out.putInt(Integer.parseInt(warning.getId()));
+			out.put((byte) warning.getType().ordinal());
+			// With its colors
+			out.putInt(strings.of(warning.getMessage().toAnsi()));
+			writeElements(out, ids, warning.getElements());
+		}
+	}
+
+	private List<Warning> readWarnings(Cursor in) {
+		final int count = in.getInt();
+		final var warnings = new ArrayList<Warning>(count);
+		for (int i = 0; i < count; i++) {
+			final int id = in.getInt();
+			final var type = WarningType.values()[in.get()];
+			final var message = AttributedString.fromAnsi(strings.get(in.getInt()));
+			warnings.add(new Warning(id, readElements(in), message, type));
+		}
+		return warnings;
+	}
+
+	private static void writeStrings(Output out, StringTable strings, List<String> values) throws IOException {
+		final List<String> copy;
+		synchronized (values) {
+			copy = new ArrayList<>(values);
+		}
+		out.putInt(copy.size());
+		for (String value : copy) {
+			out.putInt(strings.of(value));
+		}
+	}
+
+	private List<String> readStrings(Cursor in) {
+		final int count = in.getInt();
+		final var result = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(strings.get(in.getInt()));
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a mapped section from a position. Gets are absolute, so the buffer is shared and reading an element can
+	 * start reading another one halfway.
+	 */
+	private static final class Cursor {
+		private final ByteBuffer buffer;
+		private int position;
+
+		Cursor(ByteBuffer buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		byte get() {
+			return buffer.get(position++);
+		}
+
+		int getInt() {
+			final int value = buffer.getInt(position);
+			position += Integer.BYTES;
+			return value;
+		}
+
+		long getLong() {
+			final long value = buffer.getLong(position);
+			position += Long.BYTES;
+			return value;
+		}
+	}
+
+	/**
+	 * Strings of a mapped file, decoded the first time they are read. Strings are immutable, so two threads decoding
+	 * the same one at once only do it twice.
+	 */
+	private static final class Strings {
+		private final ByteBuffer buffer;
+		private final String[] decoded;
+
+		Strings(ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.decoded = new String[buffer.getInt(0)];
+		}
+
+		String get(int id) {
+			if (id < 0) {
+				return null;
+			}
+			var value = decoded[id];
+			if (value == null) {
+				final int start = buffer.getInt(Integer.BYTES * (1 + id));
+				final byte[] bytes = new byte[buffer.getInt(start)];
+				buffer.get(start + Integer.BYTES, bytes);
+				value = new String(bytes, StandardCharsets.UTF_8);
+				decoded[id] = value;
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Each distinct string to write, with its position.
+	 */
+	private static final class StringTable {
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		int of(String value) {
+			if (value == null) {
+				return -1;
+			}
+			return ids.computeIfAbsent(value, v -> {
+				strings.add(v);
+				return strings.size() - 1;
+			});
+		}
+
+		void write(Output out) throws IOException {
+			final var encoded = new ArrayList<byte[]>(strings.size());
+			strings.forEach(value -> encoded.add(value.getBytes(StandardCharsets.UTF_8)));
+			out.putInt(encoded.size());
+			long offset = Integer.BYTES * (1L + encoded.size());
+			for (byte[] bytes : encoded) {
+				checkSize(offset);
+				out.putInt((int) offset);
+				offset += Integer.BYTES + bytes.length;
+			}
+			for (byte[] bytes : encoded) {
+				out.putInt(bytes.length);
+				out.put(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Ids of the elements on the file, in the order they get one. Elements on the graph get theirs first, so they
+	 * keep their graph id.
+	 */
+	private static final class ElementIds {
+		private final Map<Element, Integer> ids = new IdentityHashMap<>();
+		private final Map<Element, Byte> where = new IdentityHashMap<>();
+		private final List<Element> elements = new ArrayList<>();
+
+		void of(Element e) {
+			if (!ids.containsKey(e)) {
+				ids.put(e, elements.size());
+				elements.add(e);
+			}
+		}
+
+		void of(Element e, byte where) {
+			of(e);
+			this.where.put(e, where);
+		}
+
+		int idOf(Element e) {
+			return e == null ? -1 : ids.get(e);
+		}
+
+		byte where(Element e) {
+			return where.getOrDefault(e, DETACHED);
+		}
+	}
+
+	/**
+	 * Writes through a buffer to the channel, from the given position on.
+	 */
+	private static final class Output implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		private long position;
+
+		Output(FileChannel channel, long position) throws IOException {
+			this.channel = channel;
+			this.position = position;
+			channel.position(position);
+		}
+
+		long position() {
+			return position + buffer.position();
+		}
+
+		void put(byte value) throws IOException {
+			ensure(Byte.BYTES);
+			buffer.put(value);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		void put(byte[] values) throws IOException {
+			for (int i = 0; i < values.length; ) {
+				ensure(1);
+				final int length = Math.min(values.length - i, buffer.remaining());
+				buffer.put(values, i, length);
+				i += length;
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			position += buffer.remaining();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
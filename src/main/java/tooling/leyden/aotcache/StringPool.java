@@ -0,0 +1,33 @@
+package tooling.leyden.aotcache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a single instance of strings that repeat on many elements, like types, package names or parameter
+ * classes. Every line parsed creates its own copy of them, and a big map has millions of elements.
+ * Unlike {@link String#intern()}, it can be emptied when the information is cleared.
+ */
+public final class StringPool {
+
+	private static final Map<String, String> pool = new ConcurrentHashMap<>();
+
+	private StringPool() {
+	}
+
+	public static String intern(String s) {
+		if (s == null) {
+			return null;
+		}
+		final var pooled = pool.get(s);
+		if (pooled != null) {
+			return pooled;
+		}
+		final var previous = pool.putIfAbsent(s, s);
+		return previous == null ? s : previous;
+	}
+
+	static void clear() {
+		pool.clear();
+	}
+}
@@ -35,14 +35,26 @@ public class Warning {
 		//If the element is a Symbol with a class, add the class to the list too:
 		List.copyOf(this.element).stream()
 				.filter(el -> el.getType().equalsIgnoreCase("Symbol"))
-				.forEach(el -> ((ReferencingElement)el).getReferences().stream()
-						.filter(c -> c.getType().equalsIgnoreCase("Class"))
-						.forEach(this.element::add));
+				.forEach(el -> ((ReferencingElement)el).forEachReference(c -> {
+					if (c.getType().equalsIgnoreCase("Class")) {
+						this.element.add(c);
+					}
+				}));
 		this.type = type;
 		this.message = message;
 		this.setId(idGenerator.getAndIncrement());
 	}
 
+	// Restores a saved warning, its elements already include the classes of its symbols
+	Warning(Integer id, List<Element> e, AttributedString message, WarningType type) {
+		this.element = new ArrayList<>(e);
+		this.type = type;
+		this.message = message;
+		this.setId(id);
+		// New warnings go after it
+		idGenerator.accumulateAndGet(id + 1, Math::max);
+	}
+
 	public Warning(Element e, AttributedString message, WarningType type) {
 		this((e != null ? List.of(e) : List.of()), message, type);
 	}
@@ -63,6 +75,14 @@ public class Warning {
 		this.id = String.format("%04d", id);
 	}
 
+	List<Element> getElements() {
+		return element;
+	}
+
+	AttributedString getMessage() {
+		return message;
+	}
+
 	public WarningType getType() {
 		return type;
 	}
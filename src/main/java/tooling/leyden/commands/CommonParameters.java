@@ -47,6 +47,13 @@ public class CommonParameters {
 			completionCandidates = Addressess.class)
     String address;
 
+	@CommandLine.Option(names = {"--addressRange"},
+			description ={"Find elements with an address between these two, both included, in address order."},
+			arity = "1",
+			split=",",
+			paramLabel = "<from>,<to>")
+	String[] addressRange;
+
 	@CommandLine.Option(names = {"--showArrays"},
 			description = "Display array classes if true. True by default.",
 			defaultValue = "true",
@@ -211,6 +218,14 @@ public class CommonParameters {
 		return innerClasses;
 	}
 
+	public String[] getAddressRange() {
+		return addressRange;
+	}
+
+	public void setAddressRange(String[] addressRange) {
+		this.addressRange = addressRange;
+	}
+
 	public String getAddress() {
 		return address;
 	}
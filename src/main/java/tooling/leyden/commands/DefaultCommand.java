@@ -7,6 +7,10 @@ import picocli.shell.jline3.PicocliCommands;
 import tooling.leyden.aotcache.Information;
 
 import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Top-level command. All other commands should be subcommands of this.
@@ -19,14 +23,19 @@ import java.io.PrintWriter;
 				DescribeCommand.class,
 				WarningCommand.class,
 				InfoCommand.class,
+				JobsCommand.class,
 				ListCommand.class,
 				LoadFileCommand.class,
 				PicocliCommands.ClearScreen.class,
+				SaveCommand.class,
 				TreeCommand.class,
 				CommandLine.HelpCommand.class})
 public class DefaultCommand implements Runnable {
 	private PrintWriter out;
 	private Information information = new Information();
+	private Jobs jobs = new Jobs();
+	// Loads share it. Loads using the parse cache, saving and loading snapshots need it for themselves
+	private final ReadWriteLock loading = new ReentrantReadWriteLock();
 	private Terminal terminal;
 
 
@@ -46,6 +55,25 @@ public class DefaultCommand implements Runnable {
 		return information;
 	}
 
+	public Jobs getJobs() {
+		return jobs;
+	}
+
+	ReadWriteLock getLoading() {
+		return loading;
+	}
+
+	/**
+	 * For commands that use the whole information, like saving it. Files being followed only take the loading lock
+	 * while parsing a line, so it waits a moment for them.
+	 *
+	 * @return The lock, to unlock when done. Null if something else is still loading.
+	 */
+	Lock lockWhenNothingIsLoading() throws InterruptedException {
+		final var lock = loading.writeLock();
+		return lock.tryLock(1, TimeUnit.SECONDS) ? lock : null;
+	}
+
 	public PrintWriter getOut() {
 		return out;
 	}
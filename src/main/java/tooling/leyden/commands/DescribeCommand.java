@@ -113,9 +113,9 @@ class DescribeCommand implements Runnable {
 	}
 
 	protected List<Element> getElementsReferencingThisOne(Element element) {
-		return parent.getInformation().getAll().parallelStream()
-				.filter(e -> (e instanceof ReferencingElement))
-				.filter(e -> ((ReferencingElement) e).getReferences().contains(element))
+		final var information = parent.getInformation();
+		return information.getReferenceGraph().getReferencing(element).stream()
+				.filter(information::cacheContains)
 				.sorted(Comparator.comparing(Element::getType))
 				.toList();
 	}
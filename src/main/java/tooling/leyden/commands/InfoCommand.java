@@ -14,8 +14,6 @@ import tooling.leyden.commands.autocomplete.WhichRun;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 @Command(name = "info", mixinStandardHelpOptions = true,
 		version = "1.0",
@@ -72,20 +70,14 @@ class InfoCommand implements Runnable {
 		CommonParameters params = new CommonParameters();
 		params.setUse(CommonParameters.ElementsToUse.both);
 		params.setUseArrays(true);
-		Stream<Element> elements = parent.getInformation().getElements(params);
-		final var counts = new HashMap<String, AtomicInteger>();
-
-		elements.forEach(item -> {
-			counts.putIfAbsent(item.getType(), new AtomicInteger());
-			counts.get(item.getType()).incrementAndGet();
-		});
+		final var counts = parent.getInformation().countByType(params);
 
 		counts.entrySet().
 				stream().
 				sorted(Map.Entry.comparingByKey())
 				.forEach(entry ->
 						parent.getOut().
-								println(String.format("%1$25s", entry.getKey()) + " => " + entry.getValue().get()));
+								println(String.format("%1$25s", entry.getKey()) + " => " + entry.getValue()));
 	}
 
 	private boolean shouldShow(String s) {
@@ -120,58 +112,58 @@ class InfoCommand implements Runnable {
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setUseArrays(false);
 		params.setTypes(new String[]{"Class"});
-		var futureClasses = parent.getInformation().getFutureElements(params);
+		var futureClasses = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setLoaded(WhichRun.training);
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setUseArrays(false);
 		params.setTypes(new String[]{"Class"});
-		var futureClassesCachedNotUsed = parent.getInformation().getFutureElements(params);
+		var futureClassesCachedNotUsed = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUseArrays(true);
 		params.setTypes(new String[]{"Object"});
 		params.setUse(CommonParameters.ElementsToUse.cached);
-		var futureObjectCount = parent.getInformation().getFutureElements(params);
+		var futureObjectCount = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUseArrays(true);
 		params.setTypes(new String[]{"Object"});
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setShowAOTInited(true);
-		var futureAotInited = parent.getInformation().getFutureElements(params);
+		var futureAotInited = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUseArrays(true);
 		params.setTypes(new String[]{"Object"});
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setShowAOTInited(null);
 		params.setInstanceOf("java.lang.Class");
-		var futureClassInstances = parent.getInformation().getFutureElements(params);
+		var futureClassInstances = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUseArrays(true);
 		params.setTypes(new String[]{"Object"});
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setShowAOTInited(null);
 		params.setInstanceOf("java.lang.String");
-		var futureStringInstances = parent.getInformation().getFutureElements(params);
+		var futureStringInstances = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setTypes(new String[] {"Method"});
 		params.setUse(CommonParameters.ElementsToUse.cached);
-		var futureMethodsSize = parent.getInformation().getFutureElements(params);
+		var futureMethodsSize = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setTypes(new String[]{"KlassTrainingData"});
-		var futureKlassTrainingData = parent.getInformation().getFutureElements(params);
+		var futureKlassTrainingData = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setTypes(new String[] {"MethodCounters"});
-		var futureMethodCounters = parent.getInformation().getFutureElements(params);
+		var futureMethodCounters = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setTypes(new String[] {"MethodData"});
-		var futureMethodData = parent.getInformation().getFutureElements(params);
+		var futureMethodData = parent.getInformation().getFutureCount(params);
 		params = new CommonParameters();
 		params.setUse(CommonParameters.ElementsToUse.cached);
 		params.setTypes(new String[] {"MethodTrainingData"});
-		var futureMethodTrainingData = parent.getInformation().getFutureElements(params);
+		var futureMethodTrainingData = parent.getInformation().getFutureCount(params);
 
 		var lambdas = Double.valueOf(stats.getValue("[LOG] Lambda Methods loaded from AOT Cache", 0).toString());
 		final double methodsSize = getFutureDouble(futureMethodsSize);
@@ -366,10 +358,10 @@ class InfoCommand implements Runnable {
 		}
 	}
 
-	private static double getFutureDouble(Future<Stream<Element>> future) {
+	private static double getFutureDouble(Future<Long> future) {
 		double count;
 		try {
-			count = (double) future.get().count();
+			count = (double) future.get();
 		} catch (Exception e) {
 			count = -1;
 		}
@@ -0,0 +1,102 @@
+package tooling.leyden.commands;
+
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+import tooling.leyden.LoadProgress;
+
+import java.nio.file.Path;
+
+/**
+ * A file being loaded in the background.
+ */
+public class Job {
+
+	public enum State {Running, Done, Failed, Cancelled, Stopped}
+
+	private final int id;
+	private final String parserType;
+	private final Path file;
+	private final long startTime = System.currentTimeMillis();
+
+	private volatile State state = State.Running;
+	private volatile boolean cancelled = false;
+	private volatile long endTime = -1;
+	private volatile LoadProgress progress;
+	private Thread thread;
+
+	Job(int id, String parserType, Path file) {
+		this.id = id;
+		this.parserType = parserType;
+		this.file = file;
+	}
+
+	synchronized void start(Thread.Builder builder, Runnable task) {
+		thread = builder.unstarted(task);
+		thread.start();
+		if (cancelled) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Ask the load to stop. The load will undo whatever it added to the information,
+	 * unless it was following a file: then it keeps what it parsed.
+	 */
+	public synchronized void cancel() {
+		if (state == State.Running) {
+			cancelled = true;
+			if (thread != null) {
+				thread.interrupt();
+			}
+		}
+	}
+
+	public void waitFor() throws InterruptedException {
+		final Thread t;
+		synchronized (this) {
+			t = thread;
+		}
+		if (t != null) {
+			t.join();
+		}
+	}
+
+	void finish(State state) {
+		this.endTime = System.currentTimeMillis();
+		this.state = state;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	void setProgress(LoadProgress progress) {
+		this.progress = progress;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public AttributedString getDescription() {
+		final long elapsed = (endTime < 0 ? System.currentTimeMillis() : endTime) - startTime;
+		final var p = progress;
+
+		AttributedStringBuilder asb = new AttributedStringBuilder();
+		asb.style(AttributedStyle.DEFAULT.bold()).append("[" + id + "] ");
+		asb.style(AttributedStyle.DEFAULT.foreground(switch (state) {
+			case Running -> AttributedStyle.CYAN;
+			case Done, Stopped -> AttributedStyle.GREEN;
+			case Failed, Cancelled -> AttributedStyle.RED;
+		})).append(state.name());
+		asb.style(AttributedStyle.DEFAULT).append(" " + parserType + " " + file);
+		asb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.YELLOW))
+				.append(" " + elapsed + "ms, " + (p != null ? p.getLines() : 0) + " lines processed");
+		return asb.toAttributedString();
+	}
+}
@@ -0,0 +1,41 @@
+package tooling.leyden.commands;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of the loads running in the background. Finished jobs are kept until they are listed once.
+ */
+public class Jobs {
+
+	private final AtomicInteger idGenerator = new AtomicInteger();
+	private final Map<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+
+	Job add(String parserType, Path file) {
+		final var job = new Job(idGenerator.incrementAndGet(), parserType, file);
+		jobs.put(job.getId(), job);
+		return job;
+	}
+
+	public Optional<Job> get(int id) {
+		return Optional.ofNullable(jobs.get(id));
+	}
+
+	/**
+	 * @return Jobs sorted by id.
+	 */
+	public List<Job> getAll() {
+		return List.copyOf(jobs.values());
+	}
+
+	/**
+	 * Forget a job that is not running anymore.
+	 */
+	void remove(Job job) {
+		jobs.remove(job.getId(), job);
+	}
+}
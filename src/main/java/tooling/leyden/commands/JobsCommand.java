@@ -0,0 +1,65 @@
+package tooling.leyden.commands;
+
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import java.util.Optional;
+
+@Command(name = "jobs", mixinStandardHelpOptions = true,
+		version = "1.0",
+		description = {"Manage the files being loaded in the background. By default, it lists them.",
+				"Finished jobs are only listed once."},
+		subcommands = {CommandLine.HelpCommand.class})
+class JobsCommand implements Runnable {
+
+	@CommandLine.ParentCommand
+	DefaultCommand parent;
+
+	public void run() {
+		final var jobs = parent.getJobs().getAll();
+		// Before printing, so jobs finishing meanwhile are listed again
+		final var finished = jobs.stream().filter(job -> job.getState() != Job.State.Running).toList();
+		jobs.forEach(job -> job.getDescription().println(parent.getTerminal()));
+		parent.getOut().println("Found " + jobs.size() + " jobs.");
+		// Like a shell does, once they have been seen
+		finished.forEach(parent.getJobs()::remove);
+	}
+
+	@Command(mixinStandardHelpOptions = true,
+			version = "1.0",
+			subcommands = {CommandLine.HelpCommand.class},
+			description = {"Stop loading a file. Whatever was loaded from that file gets removed."})
+	public void cancel(@CommandLine.Parameters(paramLabel = "<id>",
+			description = "Identifier of the job to cancel.") Integer id) throws InterruptedException {
+		final var job = find(id);
+		if (job.isPresent()) {
+			job.get().cancel();
+			job.get().waitFor();
+			job.get().getDescription().println(parent.getTerminal());
+		}
+	}
+
+	@Command(name = "wait", mixinStandardHelpOptions = true,
+			version = "1.0",
+			subcommands = {CommandLine.HelpCommand.class},
+			description = {"Wait until a file finishes loading."})
+	public void waitFor(@CommandLine.Parameters(paramLabel = "<id>",
+			description = "Identifier of the job to wait for.") Integer id) throws InterruptedException {
+		final var job = find(id);
+		if (job.isPresent()) {
+			job.get().waitFor();
+			job.get().getDescription().println(parent.getTerminal());
+		}
+	}
+
+	private Optional<Job> find(Integer id) {
+		final var job = parent.getJobs().get(id);
+		if (job.isEmpty()) {
+			new AttributedString("There is no job with id " + id + ".",
+					AttributedStyle.DEFAULT.foreground(AttributedStyle.RED)).println(parent.getTerminal());
+		}
+		return job;
+	}
+}
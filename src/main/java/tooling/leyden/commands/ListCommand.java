@@ -5,7 +5,6 @@ import picocli.CommandLine.Command;
 import tooling.leyden.aotcache.*;
 import tooling.leyden.commands.autocomplete.WhichRun;
 
-import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -21,7 +20,17 @@ class ListCommand implements Runnable {
 	@CommandLine.Mixin
 	protected CommonParameters parameters;
 
+	@CommandLine.Option(names = {"--explain"},
+			description = {"Show how the elements are found: the filters done with the index, how many elements are " +
+					"left after each one, and the filters checked on each element."},
+			defaultValue = "false",
+			arity = "0..1")
+	protected Boolean explain = false;
+
 	public void run() {
+		if (explain) {
+			explain();
+		}
 		final var counter = new AtomicInteger();
 		final var elements = findElements(counter);
 
@@ -29,9 +38,16 @@ class ListCommand implements Runnable {
 		parent.getOut().println("Found " + counter.get() + " elements.");
 	}
 
+	private void explain() {
+		final var plan = parent.getInformation().explain(parameters);
+		parent.getOut().println("Index:");
+		plan.steps().forEach(step -> parent.getOut().println("  " + step));
+		parent.getOut().println("Checked on each of the " + plan.candidates() + " candidates: "
+				+ (plan.predicates().isEmpty() ? "nothing" : String.join(", ", plan.predicates())));
+	}
+
 	protected Stream<Element> findElements(AtomicInteger counter) {
-		Stream<Element> elements = parent.getInformation().getElements(parameters);
-		elements = elements.sorted(Comparator.comparing(Element::getKey).thenComparing(Element::getType));
+		Stream<Element> elements = parent.getInformation().getSortedElements(parameters);
 		elements = elements.peek(item -> counter.incrementAndGet());
 
 		return elements;
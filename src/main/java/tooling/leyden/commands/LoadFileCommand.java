@@ -5,14 +5,19 @@ import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStyle;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import tooling.leyden.LoadProgress;
 import tooling.leyden.QuarkusPicocliLineApp;
 import tooling.leyden.StatusMessage;
+import tooling.leyden.aotcache.Information;
+import tooling.leyden.aotcache.SnapshotFile;
 import tooling.leyden.commands.logparser.AOTMapParser;
+import tooling.leyden.commands.logparser.FollowingLineReader;
+import tooling.leyden.commands.logparser.LineSource;
 import tooling.leyden.commands.logparser.Parser;
 import tooling.leyden.commands.logparser.ProductionLogParser;
 import tooling.leyden.commands.logparser.TrainingLogParser;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -21,7 +26,13 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -49,13 +60,38 @@ public class LoadFileCommand implements Runnable {
 
 	private Thread.Builder builder = Thread.ofVirtual().name("loading-file-", 0);
 
+	@CommandLine.Option(names = {"--parallelism"},
+			description = {"How many files can be loaded at the same time when loading more than one file.",
+					"By default, files are loaded one after the other."},
+			defaultValue = "1",
+			paramLabel = "<threads>",
+			scope = CommandLine.ScopeType.INHERIT)
+	protected Integer parallelism = 1;
+
+	@CommandLine.Option(names = {"--cache"},
+			negatable = true,
+			description = {"Load the analysis of a file that was parsed before, if it didn't change.",
+					"Only when nothing else is loaded. Other loads wait until the file is loaded and saved to the cache.",
+					"Enabled by default, use --no-cache to parse the file again.",
+					"-Dleyden.cache=false changes the default."},
+			defaultValue = "${sys:leyden.cache:-true}",
+			fallbackValue = "true",
+			scope = CommandLine.ScopeType.INHERIT)
+	protected Boolean cache = true;
+
+	// Mask to update the load progress once every 4096 lines
+	private static final int PROGRESS_EVERY_LINES = 4096 - 1;
+
 	public void run() {
 		parent.getOut().println(new CommandLine(this).getUsageMessage());
 
 	}
 
-	private void load(Parser consumer, Path... files) {
-
+	/**
+	 * @param follow Keep reading the files as they grow, each one on its own job.
+	 */
+	private void load(Supplier<Parser> parsers, boolean follow, Path... files) {
+		final List<Path> paths = new ArrayList<>();
 
 		if (files != null) {
 			for (Path file : files) {
@@ -86,7 +122,7 @@ public class LoadFileCommand implements Runnable {
                             FileSystems.getDefault().getPathMatcher("glob:" + startPath + filePath);
                     try (Stream<Path> pathStream = Files.find(Path.of(startPath), Integer.MAX_VALUE,
                             (path, f) -> pathMatcher.matches(path))) {
-                        pathStream.forEach(p -> loadWithBackground(consumer, p));
+                        pathStream.forEach(paths::add);
                     } catch (Exception e) {
                         QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
                                 new AttributedString("ERROR: Loading '" + file + "': " + e.getMessage(),
@@ -94,33 +130,69 @@ public class LoadFileCommand implements Runnable {
                     }
 
 				} else {
-					loadWithBackground(consumer, file);
+					paths.add(file);
 				}
 			}
 		}
-	}
 
-	private void loadWithBackground(Parser consumer, Path p) {
-		if (background) {
-			builder.start(() -> load(p, consumer));
-        } else {
-			load(p, consumer);
+		// What a parser gets out of a file depends on what was loaded before
+		final boolean cached = cache && !follow && paths.size() == 1 && parent.getInformation().isEmpty();
+		if (background || follow) {
+			// Jobs take turns so no more than `parallelism` files are parsed at the same time.
+			// Following never finishes, so files being followed don't take turns
+			final var permits = follow ? null : new Semaphore(Math.max(1, parallelism));
+			paths.forEach(p -> loadInBackground(parsers.get(), p, permits, cached, follow));
+		} else if (parallelism > 1 && paths.size() > 1) {
+			// Each file gets its own parser, parsers keep track of what they are parsing
+			try (ExecutorService pool = Executors.newFixedThreadPool(parallelism)) {
+				paths.forEach(p -> pool.submit(() -> load(p, parsers.get(), null, false, false)));
+			}
+		} else {
+			paths.forEach(p -> load(p, parsers.get(), null, cached, false));
 		}
 	}
 
-    private void load(Path path, Parser consumer) {
+	private void loadInBackground(Parser consumer, Path p, Semaphore permits, boolean cached, boolean follow) {
+		final var job = parent.getJobs().add(consumer.getClass().getSimpleName(), p);
+		job.start(builder, () -> {
+			if (permits == null) {
+				load(p, consumer, job, cached, follow);
+				return;
+			}
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				job.finish(Job.State.Cancelled);
+				return;
+			}
+			try {
+				load(p, consumer, job, cached, follow);
+			} finally {
+				permits.release();
+			}
+		});
+		QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+				new AttributedString("Started job " + job.getId() + ". Use `jobs` to follow it.",
+						AttributedStyle.DEFAULT.foreground(AttributedStyle.GREEN))));
+	}
+
+    /**
+     * @param job    If this is a background load, its job. Null otherwise.
+     * @param cached Use the {@link ParseCache} for this file.
+     */
+    private void load(Path path, Parser consumer, Job job, boolean cached, boolean follow) {
         long time = System.currentTimeMillis();
         QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
                 new AttributedString("Adding " + path.getFileName()
                         + "(" + path.getFileName() + ")"
-                        + (background ? " in background " : " ")
+                        + (follow ? " following it " : job != null ? " in background " : " ")
                         + "to our analysis...",
                         AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.GREEN))));
 
         long megabytes = Math.round((double) path.toFile().length() / 1024 / 1024);
-        if (megabytes > 100 && !background) {
+        if (megabytes > 100 && job == null) {
             new AttributedString("This is a big file. The size of this file is "
-                    + megabytes + " MB. This may take a while.",
+                    + megabytes + " MB. This may take a while, check the status bar for progress.",
                     AttributedStyle.DEFAULT.foreground(AttributedStyle.RED))
                     .println(parent.getTerminal());
             new AttributedString("Consider using the `--background` option to load this file.",
@@ -128,24 +200,153 @@ public class LoadFileCommand implements Runnable {
                     .println(parent.getTerminal());
         }
 
-        try (Scanner scanner = new Scanner(Files.newInputStream(path), StandardCharsets.UTF_8)) {
-            while (scanner.hasNextLine()) {
-                try {
-                    consumer.accept(scanner.nextLine());
-                } catch (Exception e) {
-                    //Silently fails, we don't care about weirdly formatted log lines that seem similar
-                    //to other loglines that we know how to process
+        final var progress = new LoadProgress(path.getFileName().toString(), follow ? -1 : path.toFile().length());
+        QuarkusPicocliLineApp.addLoadProgress(progress);
+        final var information = parent.getInformation();
+        Information.Changes changes = null;
+        if (job != null) {
+            job.setProgress(progress);
+            if (!follow) {
+                changes = information.recordChanges();
+            }
+        }
+        // Following never finishes, its references get on the graph as if nothing was loading
+        final var graph = follow ? null : information.getReferenceGraph();
+        if (graph != null) {
+            graph.loadStarted();
+        }
+        var state = Job.State.Done;
+        boolean fromCache = false;
+        Lock lock = null;
+        try {
+            // The cache is loaded into, and saved from, the whole information. Nothing else can be loading meanwhile
+            ParseCache parseCache = null;
+            final var loading = parent.getLoading();
+            if (cached && loading.writeLock().tryLock()) {
+                lock = loading.writeLock();
+                if (information.isEmpty()) {
+                    parseCache = ParseCache.of(consumer.getClass(), path);
+                } else {
+                    lock.unlock();
+                    lock = null;
                 }
             }
+            // Following takes it for each line instead, see holdingLoadingLock
+            if (lock == null && !follow) {
+                loading.readLock().lockInterruptibly();
+                lock = loading.readLock();
+            }
+            if (parseCache != null && parseCache.load(information)) {
+                fromCache = true;
+                checkCancelled();
+                QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+                        new AttributedString("File " + path.getFileName()
+                                + " added from the parse cache in " + (System.currentTimeMillis() - time) + "ms.",
+                                AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.GREEN))));
+                return;
+            }
+            if (follow) {
+                readLines(new FollowingLineReader(path), holdingLoadingLock(consumer), progress);
+            } else {
+                readLines(LineSource.open(path), consumer, progress);
+            }
+            checkCancelled();
             consumer.postProcessing();
+            checkCancelled();
+            if (parseCache != null) {
+                parseCache.save(information);
+            }
             QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
                     new AttributedString("File " + path.getFileName()
                             + " added in " + (System.currentTimeMillis() - time) + "ms.",
                             AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.GREEN))));
         } catch (Exception e) {
-            QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
-                    new AttributedString("ERROR: Loading " + path.getFileName(),
-                            AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+            if (job != null && job.isCancelled() && follow) {
+                // Following only ends this way, keep what we parsed
+                state = Job.State.Stopped;
+                final var loading = parent.getLoading().readLock();
+                loading.lock();
+                try {
+                    consumer.postProcessing();
+                } finally {
+                    loading.unlock();
+                }
+                QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+                        new AttributedString("Stopped following " + path.getFileName(),
+                                AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.GREEN))));
+            } else if (job != null && job.isCancelled()) {
+                state = Job.State.Cancelled;
+                if (fromCache) {
+                    // It was empty before, and nothing else was loading
+                    information.clear();
+                } else {
+                    information.rollback(changes);
+                }
+                QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+                        new AttributedString("Cancelled loading " + path.getFileName(),
+                                AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+            } else {
+                state = Job.State.Failed;
+                QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+                        new AttributedString("ERROR: Loading " + path.getFileName(),
+                                AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+            if (graph != null) {
+                // The last load to finish builds the graph
+                graph.loadFinished();
+            }
+            QuarkusPicocliLineApp.removeLoadProgress(progress);
+            if (job != null) {
+                if (changes != null) {
+                    information.stopRecordingChanges();
+                }
+                job.finish(state);
+            }
+        }
+    }
+
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    // Files being followed never finish loading, so they only hold the loading lock while parsing each line.
+    // Otherwise, whatever needs the whole information to itself, like the parse cache, could never run.
+    private Consumer<CharSequence> holdingLoadingLock(Parser consumer) {
+        final var lock = parent.getLoading().readLock();
+        return line -> {
+            lock.lock();
+            try {
+                consumer.accept(line);
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    private void readLines(LineSource source, Consumer<CharSequence> consumer, LoadProgress progress)
+            throws IOException {
+        try (LineSource reader = source) {
+            CharSequence line;
+            long lines = 0;
+            while ((line = reader.nextLine()) != null) {
+                checkCancelled();
+                if ((++lines & PROGRESS_EVERY_LINES) == 0) {
+                    progress.update(reader.position(), lines);
+                }
+                try {
+                    consumer.accept(line);
+                } catch (Exception e) {
+                    //Silently fails, we don't care about weirdly formatted log lines that seem similar
+                    //to other loglines that we know how to process
+                }
+            }
+            progress.update(reader.position(), lines);
         }
     }
 
@@ -158,7 +359,7 @@ public class LoadFileCommand implements Runnable {
 					arity = "1..*",
 					paramLabel = "<file>",
 					description = "files to load") Path[] files) {
-		load(new AOTMapParser(this), files);
+		load(() -> new AOTMapParser(this), false, files);
 	}
 
 	@Command(
@@ -167,11 +368,16 @@ public class LoadFileCommand implements Runnable {
 			description = "Load a production log generated with " + logParameters
 	)
 	public void productionLog(
+			@CommandLine.Option(names = {"--follow"},
+					description = {"Keep reading the file as the JVM writes it, like `tail -F`.",
+							"Runs as a job, use `jobs cancel <id>` to stop following it."},
+					defaultValue = "false",
+					arity = "0..1") Boolean follow,
 			@CommandLine.Parameters(
 					arity = "1..*",
 					paramLabel = "<file>",
 					description = "files to load") Path[] files) {
-		load(new ProductionLogParser(this), files);
+		load(() -> new ProductionLogParser(this), follow, files);
 	}
 
 	@Command(
@@ -184,7 +390,49 @@ public class LoadFileCommand implements Runnable {
 					arity = "1..*",
 					paramLabel = "<file>",
 					description = "files to load") Path[] files) {
-		load(new TrainingLogParser(this), files);
+		load(() -> new TrainingLogParser(this), false, files);
+	}
+
+	@Command(
+			version = "1.0",
+			subcommands = {CommandLine.HelpCommand.class},
+			description = {"Load an analysis saved with `save <file>`.",
+					"It replaces the information loaded, if any."}
+	)
+	public void snapshot(
+			@CommandLine.Parameters(
+					arity = "1",
+					paramLabel = "<file>",
+					description = "file to load") Path file) {
+		long time = System.currentTimeMillis();
+		Lock lock = null;
+		try {
+			// It replaces everything, including what other loads are adding
+			lock = parent.lockWhenNothingIsLoading();
+			if (lock == null) {
+				QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+						new AttributedString("ERROR: Loading " + file.getFileName() + ": files are still being "
+								+ "loaded. Wait for them to finish, or cancel them, see `jobs`.",
+								AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+				return;
+			}
+			final int elements = SnapshotFile.load(parent.getInformation(), file);
+			QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+					new AttributedString("Loaded " + elements + " elements from " + file.getFileName()
+							+ " in " + (System.currentTimeMillis() - time) + "ms.",
+							AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.GREEN))));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			parent.getInformation().clear();
+			QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+					new AttributedString("ERROR: Loading " + file.getFileName() + ": " + e.getMessage(),
+							AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+		} finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
 	}
 
 	public DefaultCommand getParent() {
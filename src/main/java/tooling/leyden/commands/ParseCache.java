@@ -0,0 +1,155 @@
+package tooling.leyden.commands;
+
+import tooling.leyden.aotcache.Information;
+import tooling.leyden.aotcache.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Analyses of files parsed before, saved with {@link SnapshotFile} by the content of the file and the parser that read
+ * it. Loading the same file again loads the snapshot instead of parsing it.
+ * <p>
+ * Parsers complete what is already loaded, so the same file can end up as different elements depending on what was
+ * there before. Only loads into an empty analysis use the cache, and nothing else can be loading while they do.
+ * <p>
+ * Lives in {@code ~/.leyden-analyzer/cache}, or wherever {@code -Dleyden.cacheDir} says. Only the most recently used
+ * entries are kept. Entries saved by other versions of the parsers or the snapshot format are never used, they get
+ * pruned as any other old entry.
+ */
+final class ParseCache {
+
+	// Increase it when parsers change what they get from a file
+	private static final int PARSERS_VERSION = 1;
+	private static final int MAX_ENTRIES = 8;
+	private static final String EXTENSION = ".snapshot";
+
+	private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+	private final Path directory;
+	private final Path entry;
+
+	private ParseCache(Path directory, Path entry) {
+		this.directory = directory;
+		this.entry = entry;
+	}
+
+	/**
+	 * The cache entry of this file read by this parser, whether it was cached already or not.
+	 */
+	static ParseCache of(Class<?> parser, Path file) throws IOException {
+		final var directory = Path.of(System.getProperty("leyden.cacheDir",
+				Path.of(System.getProperty("user.home"), ".leyden-analyzer", "cache").toString()));
+		final long size = Files.size(file);
+		return new ParseCache(directory, directory.resolve(parser.getSimpleName()
+				+ "-" + PARSERS_VERSION + "." + SnapshotFile.VERSION
+				+ "-" + Long.toHexString(hash(file)) + "-" + Long.toHexString(size) + EXTENSION));
+	}
+
+	/**
+	 * Loads the analysis cached, if any. It replaces what is on the information, which has to be empty.
+	 *
+	 * @return False if there was nothing cached, or it couldn't be read.
+	 */
+	boolean load(Information information) {
+		if (!Files.isRegularFile(entry)) {
+			return false;
+		}
+		try {
+			SnapshotFile.load(information, entry);
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		} catch (IOException | RuntimeException e) {
+			// Saved by another version, or broken. It gets parsed and saved again
+			information.clear();
+			return false;
+		}
+	}
+
+	/**
+	 * Saves what is on the information as the analysis of this file. Failing to save doesn't fail the load.
+	 */
+	void save(Information information) {
+		Path temporary = null;
+		try {
+			Files.createDirectories(directory);
+			// Other sessions may be reading the entry
+			temporary = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+			SnapshotFile.save(information, temporary);
+			Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			prune();
+		} catch (IOException | RuntimeException e) {
+			try {
+				if (temporary != null) {
+					Files.deleteIfExists(temporary);
+				}
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private void prune() throws IOException {
+		final List<Path> entries;
+		try (Stream<Path> files = Files.list(directory)) {
+			entries = files.filter(p -> p.getFileName().toString().endsWith(EXTENSION))
+					.sorted(Comparator.comparing(ParseCache::lastModified).reversed())
+					.toList();
+		}
+		for (Path old : entries.subList(Math.min(MAX_ENTRIES, entries.size()), entries.size())) {
+			Files.deleteIfExists(old);
+		}
+	}
+
+	private static FileTime lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	/**
+	 * Non cryptographic 64 bit hash of the content of the file, eight bytes at a time.
+	 */
+	static long hash(Path file) throws IOException {
+		final var buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		long h = PRIME_3;
+		long length = 0;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (true) {
+				final int read = channel.read(buffer);
+				buffer.flip();
+				while (buffer.remaining() >= Long.BYTES) {
+					h = Long.rotateLeft(h ^ (buffer.getLong() * PRIME_2), 31) * PRIME_1;
+				}
+				if (read < 0) {
+					// Last bytes of the file
+					while (buffer.hasRemaining()) {
+						h = Long.rotateLeft(h ^ ((buffer.get() & 0xFFL) * PRIME_3), 11) * PRIME_1;
+					}
+					break;
+				}
+				length += read;
+				buffer.compact();
+			}
+		}
+		h ^= length;
+		h ^= h >>> 33;
+		h *= PRIME_2;
+		h ^= h >>> 29;
+		h *= PRIME_3;
+		return h ^ (h >>> 32);
+	}
+}
@@ -0,0 +1,62 @@
+package tooling.leyden.commands;
+
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import tooling.leyden.QuarkusPicocliLineApp;
+import tooling.leyden.StatusMessage;
+import tooling.leyden.aotcache.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.Lock;
+
+@Command(name = "save", mixinStandardHelpOptions = true,
+		version = "1.0",
+		description = {"Saves the information loaded to a file.",
+				"Use `load snapshot <file>` to continue the analysis later without loading the original files again."},
+		subcommands = {CommandLine.HelpCommand.class})
+class SaveCommand implements Runnable {
+
+	@CommandLine.ParentCommand
+	DefaultCommand parent;
+
+	@CommandLine.Parameters(
+			arity = "1",
+			paramLabel = "<file>",
+			description = "file to save to")
+	Path file;
+
+	public void run() {
+		long time = System.currentTimeMillis();
+		Lock lock = null;
+		try {
+			// Elements added while saving wouldn't be on the file, or only halfway
+			lock = parent.lockWhenNothingIsLoading();
+			if (lock == null) {
+				error("files are still being loaded. Wait for them to finish, or cancel them, see `jobs`.");
+				return;
+			}
+			final int elements = SnapshotFile.save(parent.getInformation(), file);
+			QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+					new AttributedString("Saved " + elements + " elements to " + file.getFileName()
+							+ " in " + (System.currentTimeMillis() - time) + "ms.",
+							AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.GREEN))));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			error(e.getMessage() != null ? e.getMessage() : e.toString());
+		} finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void error(String message) {
+		QuarkusPicocliLineApp.addStatusMessage(new StatusMessage(System.currentTimeMillis(),
+				new AttributedString("ERROR: Saving " + file.getFileName() + ": " + message,
+						AttributedStyle.DEFAULT.bold().foreground(AttributedStyle.RED))));
+	}
+}
@@ -1,5 +1,6 @@
 package tooling.leyden.commands;
 
+import org.jline.terminal.Terminal;
 import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStringBuilder;
 import org.jline.utils.AttributedStyle;
@@ -12,12 +13,22 @@ import tooling.leyden.aotcache.Element;
 import tooling.leyden.aotcache.MethodObject;
 import tooling.leyden.aotcache.ReferencingElement;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -26,7 +37,8 @@ import java.util.stream.Stream;
 		description = {"Shows the dependency graph of a class.",
 				"By default, only classes will be shown, as symbols associated will be resolved to classes.",
 				"This means, elements that refer to/use the root element. ",
-				"Blue italic elements have already been shown and will not be expanded."},
+				"Blue italic elements have already been shown and will not be expanded.",
+				"Lines are shown as they are found, use Ctrl-C to stop."},
 		subcommands = {CommandLine.HelpCommand.class})
 class TreeCommand implements Runnable {
 
@@ -59,6 +71,9 @@ class TreeCommand implements Runnable {
 			paramLabel = "<true>")
 	Boolean reverse;
 
+	// Elements whose references are looked for before they are printed
+	private static final int LOOK_AHEAD = 64;
+
 	public void run() {
 
 		if (parameters.getName() == null || parameters.getName().isBlank()) {
@@ -97,14 +112,17 @@ class TreeCommand implements Runnable {
 					asb.append(e.toAttributedString());
 					asb.append(".");
 				}
-				asb.append(AttributedString.NEWLINE);
-				asb.append("Calculating dependency graph... ");
 				asb.toAttributedString().println(parent.getTerminal());
-				parent.getTerminal().flush();
 				(new AttributedString("+ ")).print(parent.getTerminal());
 				e.toAttributedString().println(parent.getTerminal());
-				try {
-					printReferrals(e, "  ", Collections.synchronizedSet(new HashSet<>(List.of(e))), 0);
+				parent.getTerminal().flush();
+				try (var walk = new Walk(e)) {
+					printReferrals(walk);
+					if (walk.isInterrupted()) {
+						(new AttributedString("Interrupted, the tree is not complete.",
+								AttributedStyle.DEFAULT.foreground(AttributedStyle.RED).bold()))
+								.println(parent.getTerminal());
+					}
 				} catch (Throwable except) {
 					(new AttributedString("ERROR: Calculating the dependency graph:" + except.getLocalizedMessage(),
 							AttributedStyle.DEFAULT.foreground(AttributedStyle.RED).bold())).println(parent.getTerminal());
@@ -117,64 +135,103 @@ class TreeCommand implements Runnable {
 		}
 	}
 
-	private void printReferrals(Element root, String leftPadding, Set<Element> travelled, Integer level) {
-		if (level > this.level || (max > 0 && travelled.size() > max))
-			return;
-		level++;
+	// Lines are printed as soon as they are found, Ctrl-C stops looking for more
+	private void printReferrals(Walk walk) {
+		final var terminal = parent.getTerminal();
+		final var thread = Thread.currentThread();
+		final var previous = terminal.handle(Terminal.Signal.INT, signal -> thread.interrupt());
+		try {
+			while (walk.hasNext()) {
+				final var line = walk.next();
+				final var leftPadding = "  ".repeat(line.depth());
+				AttributedStringBuilder asb = new AttributedStringBuilder();
 
-		boolean isFirst = true;
-		for (Element refer : getElementsReferencingThisOne(root, Collections.synchronizedSet(new HashSet<>()))) {
-			AttributedStringBuilder asb = new AttributedStringBuilder();
+				if (line.isFirst()) {
+					asb.append(leftPadding.substring(0, leftPadding.length() - 1) + '\\');
+					asb.append(AttributedString.NEWLINE);
+				} else {
+					asb.append(leftPadding + '|');
+					asb.append(AttributedString.NEWLINE);
+				}
 
-			if (isFirst) {
-				asb.append(leftPadding.substring(0, leftPadding.length() - 1) + '\\');
-				asb.append(AttributedString.NEWLINE);
-			} else {
-				asb.append(leftPadding + '|');
-				asb.append(AttributedString.NEWLINE);
-			}
+				if (!line.isExpanded()) {
+					asb.style(AttributedStyle.DEFAULT.bold().italic().foreground(AttributedStyle.BLUE));
+					asb.append(leftPadding + "- ");
+				} else {
+					asb.append(leftPadding + "+ ");
+				}
 
-			if (travelled.contains(refer)) {
-				asb.style(AttributedStyle.DEFAULT.bold().italic().foreground(AttributedStyle.BLUE));
-				asb.append(leftPadding + "- ");
-			} else {
-				asb.append(leftPadding + "+ ");
+				asb.append(line.element().toAttributedString());
+				asb.toAttributedString().println(terminal);
+				terminal.flush();
 			}
+		} finally {
+			terminal.handle(Terminal.Signal.INT, previous);
+			// Don't leave the interruption for whatever runs next on this thread
+			Thread.interrupted();
+		}
+	}
 
-			asb.append(refer.toAttributedString());
-			asb.toAttributedString().println(parent.getTerminal());
-
-			if (!travelled.contains(refer)) {
-				travelled.add(refer);
-				printReferrals(refer, leftPadding + "  ", travelled, level);
+	/**
+	 * Elements to show under this one. Elements of types not shown are walked through until finding elements that
+	 * are shown.
+	 */
+	Set<Element> getElementsReferencingThisOne(Element element, Set<Element> walkedBy) {
+		final var elements = new LinkedHashSet<Element>();
+		final var pending = new ArrayDeque<Element>();
+		pending.push(element);
+		while (!pending.isEmpty()) {
+			final var current = pending.pop();
+			if (!walkedBy.add(current)) {
+				// We have already been here, stop!
+				continue;
+			}
+			final var hidden = new ArrayList<Element>();
+			for (Element e : referenced(current)) {
+				if (isShown(e)) {
+					elements.add(e);
+					walkedBy.add(e);
+				} else {
+					hidden.add(e);
+				}
 			}
-			isFirst = false;
+			//remove parent node, if it is there
+			elements.remove(element);
 
-			if (max > 0 && travelled.size() > max) {
+			if (max > 0 && max < elements.size()) {
+				// Do not continue walking, this is already enough
+				// because all elements here are going to be printed
 				break;
 			}
+			// Push them backwards, so they are walked in the order they were found
+			for (int i = hidden.size() - 1; i >= 0; i--) {
+				if (!walkedBy.contains(hidden.get(i))) {
+					pending.push(hidden.get(i));
+				}
+			}
 		}
-	}
-
-	Set<Element> getElementsReferencingThisOne(Element element, Set<Element> walkedBy) {
-		if (walkedBy.contains(element)) {
-			// We have already been here, stop!
-			return Set.of();
-		}
-		walkedBy.add(element);
 
-		var referenced = Collections.synchronizedSet(new HashSet<Element>());
+		//filter in case we have more constraints from packages or something
+		return filter(elements.stream()).collect(Collectors.toCollection(LinkedHashSet::new));
+	}
 
+	private List<Element> referenced(Element element) {
+		final var referenced = new ArrayList<Element>();
 		if (reverse) {
 			referenced.addAll(element.getWhoReferencesMe());
 			if (element.getType().equalsIgnoreCase("Object")) {
-				((ReferencingElement)element).getReferences().stream()
-						.filter(e -> e instanceof ClassObject).forEach(referenced::add);
+				((ReferencingElement) element).forEachReference(e -> {
+					if (e instanceof ClassObject) {
+						referenced.add(e);
+					}
+				});
 			}
 		} else {
 			if (element instanceof ClassObject classObject) {
-				referenced.addAll(classObject.getSymbols());
-				referenced.addAll(classObject.getMethods());
+				synchronized (classObject) {
+					referenced.addAll(classObject.getSymbols());
+					referenced.addAll(classObject.getMethods());
+				}
 			} else if (element instanceof ConstantPoolObject cp) {
 //it would be clearer if we could show the dependency connection as being to a specific Method or Field
 // and maybe mark it in some way as a CPCache pre-link dependency rather than, say, a Method link that arises because
@@ -185,49 +242,154 @@ class TreeCommand implements Runnable {
 			}
 
 			if (element instanceof ReferencingElement re) {
-				referenced.addAll(re.getReferences());
+				re.forEachReference(referenced::add);
 			}
 		}
+		// Not every method knows its class, nor every constant pool its holder
+		referenced.removeIf(Objects::isNull);
+		return referenced;
+	}
 
-		final Set<Element> elements = Collections.synchronizedSet(new HashSet<>());
+	private boolean isShown(Element e) {
+		for (String type : parameters.types) {
+			if (type.equalsIgnoreCase(e.getType())) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-		Set<Element> tmp = new HashSet<>();
-		// If we are showing these elements (in parameters.type), add them to result:
-		referenced.parallelStream()
-				.filter(e -> Arrays.stream(parameters.types).anyMatch(t -> t.equalsIgnoreCase(e.getType())))
-				.forEach(tmp::add);
-		//filter in case we have more constraints from packages or something
-		filter(tmp.stream()).forEach(elements::add);
-		//remove parent node, if it is there
-		elements.remove(element);
-		walkedBy.addAll(elements);
+	//Delegate on Information for filtering
+	private Stream<Element> filter(Stream<Element> elements) {
+		return Information.filterByParams(parameters.packageName, parameters.excludePackageName, parameters.arrays,
+				parameters.types, parameters.isHeapRoot, elements);
+	}
 
-		if (max > 0 && max < elements.size()) {
-			// Do not continue looping recursively, this is already enough
-			// because all elements here are going to be printed
-			return elements;
+	/**
+	 * A line of the tree.
+	 *
+	 * @param depth      How far from the root it is, children of the root are at 1.
+	 * @param isFirst    It is the first element under its parent.
+	 * @param isExpanded This is the first time the element is shown, the elements under it come next.
+	 */
+	record Line(Element element, int depth, boolean isFirst, boolean isExpanded) {
+	}
+
+	/**
+	 * Lines of the tree, depth first, found while they are asked for. Elements are expanded the first time they are
+	 * shown. What the next elements reference is looked for ahead, in parallel, up to {@link #LOOK_AHEAD} elements.
+	 * Walking stops after showing more than {@link #max} elements, or when the thread walking is interrupted.
+	 */
+	final class Walk implements Iterator<Line>, AutoCloseable {
+		private final Set<Element> shown = new HashSet<>();
+		private final Deque<Frame> stack = new ArrayDeque<>();
+		private final Map<Element, Future<List<Element>>> ahead = new HashMap<>();
+		// Last element returned, its children are only looked for when the next line is asked for
+		private Line last;
+		private Line next;
+		private boolean interrupted = false;
+
+		Walk(Element root) {
+			shown.add(root);
+			last = new Line(root, 0, true, true);
 		}
 
-		// If we are not showing these elements (not in parameters.type), traverse them recursively:
-		referenced.parallelStream()
-				.filter(e -> Arrays.stream(parameters.types).noneMatch(t -> t.equalsIgnoreCase(e.getType())))
-				//Do not loop infinitely
-				.filter(e -> !walkedBy.contains(e))
-				.forEach(e -> elements.addAll(getElementsReferencingThisOne(e, walkedBy))
-				);
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				next = advance();
+			}
+			return next != null;
+		}
 
+		@Override
+		public Line next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next;
+			next = null;
+			return last;
+		}
 
-		//remove parent node, again, if it is there
-		//(it is usually there, because when traversing elements we usually find circular references)
-		elements.remove(element);
+		boolean isInterrupted() {
+			return interrupted;
+		}
 
-		return filter(elements.stream()).collect(Collectors.toSet());
-	}
+		@Override
+		public void close() {
+			ahead.values().forEach(f -> f.cancel(true));
+			ahead.clear();
+			stack.clear();
+		}
 
-	//Delegate on Information for filtering
-	private Stream<Element> filter(Stream<Element> elements) {
-		return Information.filterByParams(parameters.packageName, parameters.excludePackageName, parameters.arrays,
-				parameters.types, parameters.isHeapRoot, elements);
+		private Line advance() {
+			if (max > 0 && shown.size() > max) {
+				return null;
+			}
+			try {
+				if (last != null && last.isExpanded() && last.depth() <= level) {
+					final var children = take(last.element());
+					stack.push(new Frame(children, last.depth() + 1));
+					lookAhead(children, last.depth() + 1);
+				}
+				last = null;
+				while (!stack.isEmpty()) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw new InterruptedException();
+					}
+					final var frame = stack.peek();
+					if (frame.index == frame.children.size()) {
+						stack.pop();
+						continue;
+					}
+					final var e = frame.children.get(frame.index++);
+					return new Line(e, frame.depth, frame.index == 1, shown.add(e));
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+				close();
+			}
+			return null;
+		}
+
+		private List<Element> take(Element element) throws InterruptedException {
+			final var found = ahead.remove(element);
+			if (found == null) {
+				return List.copyOf(getElementsReferencingThisOne(element, new HashSet<>()));
+			}
+			try {
+				return found.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		// Only the elements that will be expanded: not shown yet, and not on the last level
+		private void lookAhead(List<Element> children, int depth) {
+			if (depth > level) {
+				return;
+			}
+			for (Element child : children) {
+				if (ahead.size() >= LOOK_AHEAD) {
+					return;
+				}
+				if (!shown.contains(child) && !ahead.containsKey(child)) {
+					ahead.put(child, CompletableFuture.supplyAsync(
+							() -> List.copyOf(getElementsReferencingThisOne(child, new HashSet<>()))));
+				}
+			}
+		}
 	}
 
-}
\ No newline at end of file
+	private static final class Frame {
+		private final List<Element> children;
+		private final int depth;
+		private int index = 0;
+
+		Frame(List<Element> children, int depth) {
+			this.children = children;
+			this.depth = depth;
+		}
+	}
+}
@@ -15,69 +15,6 @@ import java.util.regex.Pattern;
  */
 public class AOTMapParser extends Parser {
 
-	private final String regexpAddress = "(?<address>0[xX][0-9a-fA-F]+)";
-
-	// 0x0000000800868d58: @@ Class             520 java.lang.constant.ClassDesc
-// 0x00000008049a8410: @@ Misc data 1985520 bytes
-// 0x00000000fff69c68: @@ Object (0xfff69c68) [B length: 45
-// 0x00000000fff63458: @@ Object (0xfff63458) java.lang.String$CaseInsensitiveComparator
-// 0x00000000ffe94558: @@ Object (0xffe94558) java.lang.String "sun.util.locale.BaseLocale"
-// 0x00000000ffef4720: @@ Object (0xffef4720) java.lang.Class Lsun/util/locale/BaseLocale$1;
-// 0x0000000801cd0518: @@ MethodTrainingData 96
-	private final Pattern assetHeader =
-			Pattern.compile(regexpAddress + ": @@ (?<type>\\w+)(?: data)?\\s+"
-					+ "(?<miniaddress>\\(0[xX][0-9a-fA-F]+\\))?"
-					+ "(?<size>\\d+)?\\s*(?<identifier>.*)");
-
-	//  - klass: 'java/lang/Integer'[] 0x000000080081be80
-	private final Pattern klass = Pattern.compile(" - klass: '(?<class>[\\w+\\/?]+)' " + regexpAddress);
-
-	//  - klass: {type array byte} 0x00000008007f08c0
-	private final Pattern klassArray = Pattern.compile(" - klass: \\{.*\\} " + regexpAddress);
-
-	// -   0: 0x00000000ffe5c700 (0xffe5c700) java.lang.Integer
-	// -   1: 0x00000000ffe5c710 (0xffe5c710) java.lang.Integer
-	// -   2: 0x00000000ffe5c720 (0xffe5c720) java.lang.Integer
-	// -   3: 0x00000000ffe5c730 (0xffe5c730) java.lang.Integer
-	// -   4: 0x00000000ffe5c740 (0xffe5c740) java.lang.Integer
-	// -   5: 0x00000000ffe5c750 (0xffe5c750) java.lang.Integer
-	// -   6: 0x00000000ffe5c760 (0xffe5c760) java.lang.Integer
-	private final Pattern array = Pattern.compile(" -\\s*\\d+: " + regexpAddress + " .+");
-
-	//At some point, instead of root, it is roots.ddddddd
-	// [heap               0x00000000ffd00000 - 0x00000000fff30528   2295080 bytes]
-	//0x00000000ffd00000: @@ Object (0xffd00000) [Ljava.lang.Object; length: 5391
-	// - klass: 'java/lang/Object'[] 0x00000008007eee30
-	// root[   0]: 0x00000000ffd05450 (0xffd05450) [Ljava.lang.Integer; length: 256
-	// root[   1]: 0x00000000ffd05860 (0xffd05860) [Ljava.lang.Long; length: 256
-	// root[   2]: 0x00000000ffd05c70 (0xffd05c70) [Ljava.lang.Byte; length: 256
-	// root[   3]: 0x00000000ffd06080 (0xffd06080) [Ljava.lang.Short; length: 256
-	// root[   4]: 0x00000000ffd06490 (0xffd06490) [Ljava.lang.Character; length: 128
-	// root[1972]: 0x00000000ffdfd898 (0xffdfd898) java.lang.Class [Ljava/lang/annotation/Annotation;
-	// root[1973]: 0x00000000ffdfd910 (0xffdfd910) java.lang.Class [[Ljava/lang/annotation/Annotation;
-	// root[1974]: 0x00000000ffdf5c78 (0xffdf5c78) java.lang.Class Ljava/lang/reflect/GenericDeclaration;
-	// root[2192]: 0x00000000ffdf1368 (0xffdf1368) java.lang.Class Ljava/lang/invoke/BoundMethodHandle; (aot-inited)
-	// root[2193]: 0x00000000ffdef7d8 (0xffdef7d8) java.lang.Class Ljava/lang/invoke/LambdaForm$Kind; (aot-inited)
-	private final Pattern heapRoot = Pattern.compile(" root(s)?\\[\\s*\\d+\\]: " + regexpAddress + " \\(0.*\\) (.+)");
-
-
-	// - resolved_references: 0x00000000ffd5dd18 (0xffd5dd18) [Ljava.lang.Object; length: 2
-	private final Pattern resolvedReferences = Pattern.compile(
-			" - resolved_references: " + regexpAddress + "\\s+\\((?<miniaddress>0[xX][0-9a-fA-F]+)?\\)(?:.*)");
-
-	// - protected transient 'modCount' 'I' @12  1 (0x00000001)
-	// - private final 'sequence' 'Ljava/util/List;' @16 0x00000000ffd07550 (0xffd07550) java.util.ArrayList
-	// - private transient 'name' 'Ljava/lang/String;' @52 null
-	// - private static final 'PRIMITIVE_ARRAY_TYPES' '[[Ljava/lang/Object;' @120 null
-	// - injected 'klass' 'J' @16  34368850440 (0x00000008008b0a08)
-	private final Pattern fieldClass = Pattern.compile(
-			" - (?<modifiers>[public|protected|private|static|final|transient|volatile|synthetic|injected|\\s]+)'" +
-					"(?<variable>.+)'\\s+'\\[*[\\[|L](?<classname>[^;']+);?'\\s+(?<index>@\\d*+)\\s+\\(?" +
-					regexpAddress + "?\\)?\\s*\\(?(?<miniaddress>0[xX][0-9a-fA-F]+)?\\)?(?<end>.*)");
-	private final Pattern fieldPrimitive = Pattern.compile(
-			" - (?<modifiers>[public|protected|private|static|final|transient|volatile|synthetic|injected|\\s]+)'" +
-					"(?<variable>.+)'\\s+'(?<classname>[^;']+)'\\s+(?<index>@\\d*+)\\s*(?<value>[^ ]+)\\s*\\(?" +
-					regexpAddress + "?\\)?\\s*\\(?(?<miniaddress>0[xX][0-9a-fA-F]+)?\\)?(?:.*)");
 	static final Pattern listOfClasses = Pattern.compile(
 			"(?<class>L?[^<>;]+" +
 					"((?=<)(?=(?<type>(?:(?=.*?<(?!.*?\\4)(.*>(?!.*\\3).*))(?=.*?>(?!.*?\\5)(.*)).)+?.*?(?=\\4)[^<]*(?=\\5$))))?" +
@@ -100,146 +37,109 @@ public class AOTMapParser extends Parser {
 	@Override
 	public void postProcessing() {
 		//Due to ordering on the map file, we may have some unresolved placeholder elements
-		information.getAll().stream()
-				.filter(e -> e instanceof ReferencingElement)
-				.map(ReferencingElement.class::cast)
-				.forEach(e -> e.resolvePlaceholders());
+		information.getReferenceGraph().resolvePlaceholders();
 	}
 
 
 	@Override
-	public void accept(String content) {
-		Matcher m = assetHeader.matcher(content);
-		if (m.matches()) {
-			processAssetHeader(
-					m.group("address"), m.group("type"), m.group("size"), m.group("identifier"),
-					m.group("miniaddress"));
-			return;
-		}
-
-		processOopsLog(content);
+	public void accept(CharSequence content) {
+		apply(tokenize(content));
 	}
 
-	private void processOopsLog(String content) {
-		if (processKlassLine(content)) {
-			return;
-		}
-
-		if (processField(content)) {
-			return;
-		}
-
-		if (processArray(content)) {
-			return;
-		}
+	/**
+	 * Find out what kind of line this is. This doesn't touch the parser state nor the Information, so it can be
+	 * safely called concurrently on lines that are going to be applied later, in order.
+	 *
+	 * @param content The line as found on the AOT map file
+	 * @return The line, classified
+	 */
+	MapLine tokenize(CharSequence content) {
+		return AOTMapTokenizer.tokenize(content);
+	}
 
-		if (processResolvedReferences(content)) {
-			return;
+	/**
+	 * Process a line previously classified with {@link #tokenize(CharSequence)}. Lines must be applied in the same order
+	 * they appear on the file, as they refer to the last asset header processed.
+	 */
+	void apply(MapLine line) {
+		switch (line.kind()) {
+			case ASSET_HEADER -> processAssetHeader(
+					line.address(), line.type(), line.size(), line.identifier(), line.miniaddress());
+			case KLASS -> processKlassLine(line.address(), line.identifier());
+			case KLASS_ARRAY -> processKlassArrayLine(line.address());
+			case FIELD_CLASS -> processFieldClass(line.address(), line.matcher());
+			case FIELD_PRIMITIVE, RESOLVED_REFERENCES -> processReference(line.address());
+			case ARRAY -> processArray(line.address());
+			case HEAP_ROOT -> processHeapRoot(line.address());
+			default -> {
+			}
 		}
+	}
 
-		processHeapRoot(content);
+	private void processArray(String address) {
+		information.setHeapRoot((ReferencingElement) current);
+		((ReferencingElement) current).addReference(new PlaceHolderElement(address));
 	}
 
-	private boolean processArray(String content) {
-		Matcher m = array.matcher(content);
-		if (m.matches()) {
+	private void processHeapRoot(String address) {
+		information.addHeapRoot(address);
+		if (!current.isHeapRoot()) {
+			current.setHeapRoot(true);
 			information.setHeapRoot((ReferencingElement) current);
-			((ReferencingElement) current).addReference(new PlaceHolderElement(m.group("address")));
-			return true;
+			((ReferencingElement) current).addReference(new PlaceHolderElement(address));
 		}
-		return false;
 	}
 
-	private boolean processHeapRoot(String content) {
-		Matcher m = heapRoot.matcher(content);
-		if (m.matches()) {
-			information.addHeapRoot(m.group("address"));
-			if (!current.isHeapRoot()) {
-				current.setHeapRoot(true);
-				information.setHeapRoot((ReferencingElement) current);
-				((ReferencingElement) current).addReference(new PlaceHolderElement(m.group("address")));
-			}
-			return true;
+	private void processReference(String address) {
+		if (address != null) {
+			((ReferencingElement) current).addReference(new PlaceHolderElement(address));
 		}
-		return false;
 	}
 
+	private void processFieldClass(String address, Matcher m) {
+		if (address != null) {
+			((ReferencingElement) current).addReference(new PlaceHolderElement(address));
+		} else {
+			var classObj = information.getElements(m.group("classname").replaceAll("/", "."), null, null, true, true, "Class").findAny();
+			classObj.ifPresent(element -> ((ReferencingElement) current).addReference(element));
+		}
 
-	private boolean processResolvedReferences(String content) {
-		Matcher m = resolvedReferences.matcher(content);
-		if (m.matches()) {
-			if (m.group("address") != null) {
-				((ReferencingElement) current).addReference(new PlaceHolderElement(m.group("address")));
-			}
-			return true;
+		var end = m.group("end").trim();
+		if (end != null && end.startsWith("java.lang.Class")) {
+			end = end.substring(16, end.indexOf(";") + 1);
+			var classObj =
+					information.getElements(end.replaceAll("/", "."), null, null, true, true, "Symbol").findAny();
+			classObj.ifPresent(element -> ((ReferencingElement) current).addReference(element));
+		} else if (!end.equalsIgnoreCase("null") && !end.contains(" ")) {
+			//It may be that the instance class linked is a subclass of the one defined in m.group("classname")
+			var classObj =
+					information.getElements(end, null, null, true, true, "Class").findAny();
+			classObj.ifPresent(element -> ((ReferencingElement) current).addReference(element));
 		}
-		return false;
 	}
 
-	private boolean processField(String content) {
-		Matcher m = fieldClass.matcher(content);
-		if (m.matches()) {
-			if (m.group("address") != null) {
-				((ReferencingElement) current).addReference(new PlaceHolderElement(m.group("address")));
-			} else {
-				var classObj = information.getElements(m.group("classname").replaceAll("/", "."), null, null, true, true, "Class").findAny();
-				classObj.ifPresent(element -> ((ReferencingElement) current).addReference(element));
-			}
-
-			var end = m.group("end").trim();
-			if (end != null && end.startsWith("java.lang.Class")) {
-				end = end.substring(16, end.indexOf(";") + 1);
-				var classObj =
-						information.getElements(end.replaceAll("/", "."), null, null, true, true, "Symbol").findAny();
-				classObj.ifPresent(element -> ((ReferencingElement) current).addReference(element));
-			} else if (!end.equalsIgnoreCase("null") && !end.contains(" ")) {
-				//It may be that the instance class linked is a subclass of the one defined in m.group("classname")
-				var classObj =
-						information.getElements(end, null, null, true, true, "Class").findAny();
-				classObj.ifPresent(element -> ((ReferencingElement) current).addReference(element));
-			}
-			return true;
-		}
-		m = fieldPrimitive.matcher(content);
-		if (m.matches()) {
-			if (m.group("address") != null) {
-				((ReferencingElement) current).addReference(new PlaceHolderElement(m.group("address")));
-			}
-			return true;
+	private void processKlassLine(String address, String className) {
+		Element e = information.getByAddress(address);
+		if (e == null) {
+			((ReferencingElement) current).addReference(new PlaceHolderElement(address));
+		} else if (!e.getKey().equalsIgnoreCase(className.replaceAll("/", "."))
+				|| !e.getType().equalsIgnoreCase("Class")) {
+			(new AttributedString("ERROR: Was expecting class " + className
+					+ " at address " + address + " but found " + e,
+					AttributedStyle.DEFAULT.foreground(AttributedStyle.RED).bold()))
+					.println(loadFile.getParent().getTerminal());
+		} else {
+			((ReferencingElement) current).addReference(e);
 		}
-		return false;
 	}
 
-	private boolean processKlassLine(String content) {
-		Matcher m = klass.matcher(content);
-		if (m.matches()) {
-			final var address = m.group("address");
-			Element e = information.getByAddress(address);
-			if (e == null) {
-				((ReferencingElement) current).addReference(new PlaceHolderElement(address));
-			} else if (!e.getKey().equalsIgnoreCase(m.group("class").replaceAll("/", "."))
-					|| !e.getType().equalsIgnoreCase("Class")) {
-				(new AttributedString("ERROR: Was expecting class " + m.group(1)
-						+ " at address " + address + " but found " + e,
-						AttributedStyle.DEFAULT.foreground(AttributedStyle.RED).bold()))
-						.println(loadFile.getParent().getTerminal());
-			} else {
-				((ReferencingElement) current).addReference(e);
-			}
-			return true;
+	private void processKlassArrayLine(String address) {
+		Element e = information.getByAddress(address);
+		if (e == null) {
+			((ReferencingElement) current).addReference(new PlaceHolderElement(address));
 		} else {
-			m = klassArray.matcher(content);
-			if (m.matches()) {
-				Element e = information.getByAddress(m.group("address"));
-				if (e == null) {
-					((ReferencingElement) current).addReference(new PlaceHolderElement(m.group("address")));
-				} else {
-					((ReferencingElement) current).addReference(e);
-				}
-				return true;
-			}
+			((ReferencingElement) current).addReference(e);
 		}
-		return false;
 	}
 
 	private void processAssetHeader(String address, String type, String size_s, String identifier, String miniaddress) {
@@ -600,4 +500,19 @@ public class AOTMapParser extends Parser {
 
 		return constMethod;
 	}
+
+	/**
+	 * Kinds of lines we know how to process.
+	 */
+	enum LineKind {
+		ASSET_HEADER, KLASS, KLASS_ARRAY, FIELD_CLASS, FIELD_PRIMITIVE, ARRAY, RESOLVED_REFERENCES, HEAP_ROOT, UNKNOWN
+	}
+
+	/**
+	 * A classified line. Only the fields that make sense for its kind are filled in.
+	 * The matcher is only there for field lines, the rest are scanned without regular expressions.
+	 */
+	record MapLine(LineKind kind, String address, String type, String size, String identifier, String miniaddress,
+				   Matcher matcher) {
+	}
 }
@@ -0,0 +1,318 @@
+package tooling.leyden.commands.logparser;
+
+import tooling.leyden.commands.logparser.AOTMapParser.LineKind;
+import tooling.leyden.commands.logparser.AOTMapParser.MapLine;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies the lines of an AOT map file in a single pass, looking at the first characters to know what
+ * kind of line it is. It accepts exactly the same lines the regular expressions used to accept.
+ * Field lines are too irregular to scan by hand, so they are the only ones still using regular expressions.
+ */
+final class AOTMapTokenizer {
+
+	private static final String regexpAddress = "(?<address>0[xX][0-9a-fA-F]+)";
+
+	// - protected transient 'modCount' 'I' @12  1 (0x00000001)
+	// - private final 'sequence' 'Ljava/util/List;' @16 0x00000000ffd07550 (0xffd07550) java.util.ArrayList
+	// - private transient 'name' 'Ljava/lang/String;' @52 null
+	// - private static final 'PRIMITIVE_ARRAY_TYPES' '[[Ljava/lang/Object;' @120 null
+	// - injected 'klass' 'J' @16  34368850440 (0x00000008008b0a08)
+	private static final Pattern fieldClass = Pattern.compile(
+			" - (?<modifiers>[public|protected|private|static|final|transient|volatile|synthetic|injected|\\s]+)'" +
+					"(?<variable>.+)'\\s+'\\[*[\\[|L](?<classname>[^;']+);?'\\s+(?<index>@\\d*+)\\s+\\(?" +
+					regexpAddress + "?\\)?\\s*\\(?(?<miniaddress>0[xX][0-9a-fA-F]+)?\\)?(?<end>.*)");
+	private static final Pattern fieldPrimitive = Pattern.compile(
+			" - (?<modifiers>[public|protected|private|static|final|transient|volatile|synthetic|injected|\\s]+)'" +
+					"(?<variable>.+)'\\s+'(?<classname>[^;']+)'\\s+(?<index>@\\d*+)\\s*(?<value>[^ ]+)\\s*\\(?" +
+					regexpAddress + "?\\)?\\s*\\(?(?<miniaddress>0[xX][0-9a-fA-F]+)?\\)?(?:.*)");
+
+	private static final MapLine UNKNOWN = new MapLine(LineKind.UNKNOWN, null, null, null, null, null, null);
+
+	private AOTMapTokenizer() {
+	}
+
+	static MapLine tokenize(CharSequence line) {
+		if (startsWith(line, 0, "0x") || startsWith(line, 0, "0X")) {
+			return assetHeader(line);
+		}
+		if (startsWith(line, 0, " - klass: ")) {
+			return klass(line);
+		}
+		if (startsWith(line, 0, " - resolved_references: ")) {
+			return resolvedReferences(line);
+		}
+		if (startsWith(line, 0, " -")) {
+			final var field = field(line);
+			return field != null ? field : array(line);
+		}
+		if (startsWith(line, 0, " root")) {
+			return heapRoot(line);
+		}
+		return UNKNOWN;
+	}
+
+	// 0x0000000800868d58: @@ Class             520 java.lang.constant.ClassDesc
+	// 0x00000008049a8410: @@ Misc data 1985520 bytes
+	// 0x00000000fff69c68: @@ Object (0xfff69c68) [B length: 45
+	// 0x00000000fff63458: @@ Object (0xfff63458) java.lang.String$CaseInsensitiveComparator
+	// 0x00000000ffe94558: @@ Object (0xffe94558) java.lang.String "sun.util.locale.BaseLocale"
+	// 0x00000000ffef4720: @@ Object (0xffef4720) java.lang.Class Lsun/util/locale/BaseLocale$1;
+	// 0x0000000801cd0518: @@ MethodTrainingData 96
+	private static MapLine assetHeader(CharSequence line) {
+		final int length = line.length();
+		final int addressEnd = hexEnd(line, 2);
+		if (addressEnd == 2 || !startsWith(line, addressEnd, ": @@ ")) {
+			return UNKNOWN;
+		}
+
+		final int typeStart = addressEnd + 5;
+		int i = typeStart;
+		while (i < length && isWordChar(line.charAt(i))) {
+			i++;
+		}
+		if (i == typeStart) {
+			return UNKNOWN;
+		}
+		final int typeEnd = i;
+		if (startsWith(line, i, " data") && i + 5 < length && isWhitespace(line.charAt(i + 5))) {
+			i += 5;
+		}
+		if (i == length || !isWhitespace(line.charAt(i))) {
+			return UNKNOWN;
+		}
+		i = skipWhitespace(line, i);
+
+		String miniaddress = null;
+		if (startsWith(line, i, "(0x") || startsWith(line, i, "(0X")) {
+			final int miniaddressEnd = hexEnd(line, i + 3);
+			if (miniaddressEnd > i + 3 && miniaddressEnd < length && line.charAt(miniaddressEnd) == ')') {
+				miniaddress = line.subSequence(i, miniaddressEnd + 1).toString();
+				i = miniaddressEnd + 1;
+			}
+		}
+
+		String size = null;
+		final int sizeStart = i;
+		while (i < length && isDigit(line.charAt(i))) {
+			i++;
+		}
+		if (i > sizeStart) {
+			size = line.subSequence(sizeStart, i).toString();
+		}
+		i = skipWhitespace(line, i);
+
+		return new MapLine(LineKind.ASSET_HEADER,
+				line.subSequence(0, addressEnd).toString(),
+				line.subSequence(typeStart, typeEnd).toString(),
+				size,
+				line.subSequence(i, length).toString(),
+				miniaddress,
+				null);
+	}
+
+	//  - klass: 'java/lang/Integer'[] 0x000000080081be80
+	//  - klass: {type array byte} 0x00000008007f08c0
+	private static MapLine klass(CharSequence line) {
+		final int length = line.length();
+		final int start = " - klass: ".length();
+		if (start == length) {
+			return UNKNOWN;
+		}
+
+		if (line.charAt(start) == '\'') {
+			int i = start + 1;
+			while (i < length && isClassNameChar(line.charAt(i))) {
+				i++;
+			}
+			if (i == start + 1 || !startsWith(line, i, "' ")) {
+				return UNKNOWN;
+			}
+			final int addressStart = i + 2;
+			if (!isAddressUntilTheEnd(line, addressStart)) {
+				return UNKNOWN;
+			}
+			return new MapLine(LineKind.KLASS, line.subSequence(addressStart, length).toString(), null, null,
+					line.subSequence(start + 1, i).toString(), null, null);
+		}
+
+		if (line.charAt(start) == '{') {
+			final int addressStart = lastIndexOf(line, ' ') + 1;
+			if (addressStart < start + 3 || line.charAt(addressStart - 2) != '}'
+					|| !isAddressUntilTheEnd(line, addressStart)) {
+				return UNKNOWN;
+			}
+			return new MapLine(LineKind.KLASS_ARRAY, line.subSequence(addressStart, length).toString(), null, null,
+					null, null, null);
+		}
+
+		return UNKNOWN;
+	}
+
+	// - resolved_references: 0x00000000ffd5dd18 (0xffd5dd18) [Ljava.lang.Object; length: 2
+	private static MapLine resolvedReferences(CharSequence line) {
+		final int length = line.length();
+		final int addressStart = " - resolved_references: ".length();
+		final int addressEnd = addressEnd(line, addressStart);
+		if (addressEnd < 0 || addressEnd == length || !isWhitespace(line.charAt(addressEnd))) {
+			return UNKNOWN;
+		}
+		int i = skipWhitespace(line, addressEnd);
+		if (i == length || line.charAt(i) != '(') {
+			return UNKNOWN;
+		}
+		i++;
+		final int miniaddressEnd = addressEnd(line, i);
+		if (miniaddressEnd > 0) {
+			i = miniaddressEnd;
+		}
+		if (i == length || line.charAt(i) != ')') {
+			return UNKNOWN;
+		}
+		return new MapLine(LineKind.RESOLVED_REFERENCES, line.subSequence(addressStart, addressEnd).toString(),
+				null, null, null, null, null);
+	}
+
+	// -   0: 0x00000000ffe5c700 (0xffe5c700) java.lang.Integer
+	private static MapLine array(CharSequence line) {
+		final int length = line.length();
+		int i = skipWhitespace(line, 2);
+		final int indexStart = i;
+		while (i < length && isDigit(line.charAt(i))) {
+			i++;
+		}
+		if (i == indexStart || !startsWith(line, i, ": ")) {
+			return UNKNOWN;
+		}
+		final int addressStart = i + 2;
+		final int addressEnd = addressEnd(line, addressStart);
+		if (addressEnd < 0 || addressEnd + 1 >= length || line.charAt(addressEnd) != ' ') {
+			return UNKNOWN;
+		}
+		return new MapLine(LineKind.ARRAY, line.subSequence(addressStart, addressEnd).toString(),
+				null, null, null, null, null);
+	}
+
+	// root[   0]: 0x00000000ffd05450 (0xffd05450) [Ljava.lang.Integer; length: 256
+	// root[2192]: 0x00000000ffdf1368 (0xffdf1368) java.lang.Class Ljava/lang/invoke/BoundMethodHandle; (aot-inited)
+	private static MapLine heapRoot(CharSequence line) {
+		final int length = line.length();
+		int i = " root".length();
+		if (i < length && line.charAt(i) == 's') {
+			i++;
+		}
+		if (i == length || line.charAt(i) != '[') {
+			return UNKNOWN;
+		}
+		i = skipWhitespace(line, i + 1);
+		final int indexStart = i;
+		while (i < length && isDigit(line.charAt(i))) {
+			i++;
+		}
+		if (i == indexStart || !startsWith(line, i, "]: ")) {
+			return UNKNOWN;
+		}
+		final int addressStart = i + 3;
+		final int addressEnd = addressEnd(line, addressStart);
+		if (addressEnd < 0 || !startsWith(line, addressEnd, " (0")) {
+			return UNKNOWN;
+		}
+		final int close = indexOf(line, ") ", addressEnd + 3);
+		if (close < 0 || close + 2 >= length) {
+			return UNKNOWN;
+		}
+		return new MapLine(LineKind.HEAP_ROOT, line.subSequence(addressStart, addressEnd).toString(),
+				null, null, null, null, null);
+	}
+
+	private static MapLine field(CharSequence line) {
+		Matcher m = fieldClass.matcher(line);
+		if (m.matches()) {
+			return new MapLine(LineKind.FIELD_CLASS, m.group("address"), null, null, null, null, m);
+		}
+		m = fieldPrimitive.matcher(line);
+		if (m.matches()) {
+			return new MapLine(LineKind.FIELD_PRIMITIVE, m.group("address"), null, null, null, null, m);
+		}
+		return null;
+	}
+
+	/**
+	 * @return Where the address starting at this position ends, or -1 if there is no address there.
+	 */
+	private static int addressEnd(CharSequence line, int start) {
+		if (!startsWith(line, start, "0x") && !startsWith(line, start, "0X")) {
+			return -1;
+		}
+		final int end = hexEnd(line, start + 2);
+		return end == start + 2 ? -1 : end;
+	}
+
+	private static boolean isAddressUntilTheEnd(CharSequence line, int start) {
+		return addressEnd(line, start) == line.length();
+	}
+
+	private static int hexEnd(CharSequence line, int i) {
+		while (i < line.length() && Character.digit(line.charAt(i), 16) >= 0 && line.charAt(i) < 128) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipWhitespace(CharSequence line, int i) {
+		while (i < line.length() && isWhitespace(line.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean startsWith(CharSequence line, int offset, String prefix) {
+		if (offset < 0 || offset + prefix.length() > line.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (line.charAt(offset + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(CharSequence line, String s, int from) {
+		for (int i = from; i + s.length() <= line.length(); i++) {
+			if (startsWith(line, i, s)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(CharSequence line, char c) {
+		for (int i = line.length() - 1; i >= 0; i--) {
+			if (line.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Same as \s on regular expressions
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	// Same as \w on regular expressions
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+	}
+
+	private static boolean isClassNameChar(char c) {
+		return isWordChar(c) || c == '+' || c == '/' || c == '?';
+	}
+}
@@ -0,0 +1,187 @@
+package tooling.leyden.commands.logparser;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the lines of a compressed file without unpacking it to disk.
+ * Decompression runs on its own thread, which fills a batch of lines while the previous one is being parsed.
+ */
+class DecompressingLineReader implements LineSource {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int LINES_PER_BATCH = 8 * 1024;
+	// One batch being parsed, one being filled: decompression and parsing overlap
+	private static final int BATCHES_IN_FLIGHT = 2;
+	private static final List<String> END = List.of();
+
+	private final BlockingQueue<List<String>> batches = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT);
+	private final Thread decoder;
+	private volatile long compressedBytesRead = 0;
+	private volatile Throwable failure;
+
+	private List<String> batch = List.of();
+	private int next = 0;
+	private boolean finished = false;
+
+	DecompressingLineReader(Path path, LineSource.Compression compression) throws IOException {
+		final InputStream file = new CountingInputStream(Files.newInputStream(path));
+		final InputStream in;
+		try {
+			in = switch (compression) {
+				case Gzip -> new GZIPInputStream(file, BUFFER_SIZE);
+				case Zstd -> new ZstdInputStream(file);
+				case Xz -> new XZInputStream(file);
+				case None -> file;
+			};
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		decoder = Thread.ofPlatform().daemon().name("decoding-" + path.getFileName()).start(() -> decompress(in));
+	}
+
+	@Override
+	public CharSequence nextLine() throws IOException {
+		while (next == batch.size()) {
+			if (finished) {
+				return null;
+			}
+			try {
+				batch = batches.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			next = 0;
+			if (batch == END) {
+				finished = true;
+				if (failure != null) {
+					throw new IOException("Can't decompress the file", failure);
+				}
+			}
+		}
+		return batch.get(next++);
+	}
+
+	@Override
+	public long position() {
+		return compressedBytesRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		decoder.interrupt();
+		// Make room in case the decoder is waiting to hand over a batch
+		batches.clear();
+	}
+
+	private void decompress(InputStream in) {
+		try (in) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			byte[] line = new byte[256];
+			int lineLength = 0;
+			boolean ascii = true;
+			// The line before ended on a \r, a \n right after it is part of the same line break
+			boolean carriageReturn = false;
+			List<String> lines = new ArrayList<>(LINES_PER_BATCH);
+
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				for (int i = 0; i < read; i++) {
+					final byte b = buffer[i];
+					if (b == '\n' && carriageReturn) {
+						carriageReturn = false;
+					} else if (b == '\n' || b == '\r') {
+						// Same as MappedLineReader, a lone \r ends the line too
+						carriageReturn = b == '\r';
+						lines.add(decode(line, lineLength, ascii));
+						lineLength = 0;
+						ascii = true;
+						if (lines.size() == LINES_PER_BATCH) {
+							batches.put(lines);
+							lines = new ArrayList<>(LINES_PER_BATCH);
+						}
+					} else {
+						carriageReturn = false;
+						if (lineLength == line.length) {
+							line = Arrays.copyOf(line, line.length * 2);
+						}
+						line[lineLength++] = b;
+						ascii &= b >= 0;
+					}
+				}
+			}
+			if (lineLength > 0) {
+				lines.add(decode(line, lineLength, ascii));
+			}
+			if (!lines.isEmpty()) {
+				batches.put(lines);
+			}
+		} catch (InterruptedException | InterruptedIOException e) {
+			// Closed before reaching the end of the file
+			return;
+		} catch (Throwable t) {
+			failure = t;
+		}
+		try {
+			batches.put(END);
+		} catch (InterruptedException e) {
+			// Nobody is reading anymore
+		}
+	}
+
+	// Same as MappedLineReader: the line without its terminator, decoded as UTF-8
+	static String decode(byte[] line, int length, boolean ascii) {
+		return new String(line, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Keeps track of how much of the compressed file we have read, to report progress.
+	 */
+	private class CountingInputStream extends FilterInputStream {
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) {
+				compressedBytesRead++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) {
+				compressedBytesRead += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			final long skipped = super.skip(n);
+			compressedBytesRead += skipped;
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package tooling.leyden.commands.logparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a file that is still being written, like `tail -F`.
+ * When there are no more lines, it waits for the file to grow. If the file gets truncated, it starts reading it again
+ * from the beginning. If the file gets rotated (a new file is created with the same name), it finishes reading
+ * the old one and continues with the new one.
+ * It only stops when the thread reading is interrupted.
+ */
+public class FollowingLineReader implements LineSource {
+
+	static final long DEFAULT_POLL_INTERVAL = 200;
+
+	private final Path path;
+	private final long pollInterval;
+	private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).flip();
+
+	private FileChannel channel;
+	private Object fileKey;
+	// Where to read next on the current file
+	private long position = 0;
+	// Bytes read on all the files followed
+	private long bytesRead = 0;
+
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+	private boolean ascii = true;
+	// The last byte was a \r, the line ends whether a \n follows or not
+	private boolean carriageReturn = false;
+
+	public FollowingLineReader(Path path) throws IOException {
+		this(path, DEFAULT_POLL_INTERVAL);
+	}
+
+	FollowingLineReader(Path path, long pollInterval) throws IOException {
+		this.path = path;
+		this.pollInterval = pollInterval;
+		open();
+	}
+
+	/**
+	 * @return The next complete line, waiting for it if needed, or null if the thread was interrupted while waiting.
+	 */
+	@Override
+	public CharSequence nextLine() throws IOException {
+		while (true) {
+			while (buffer.hasRemaining()) {
+				final byte b = buffer.get();
+				if (carriageReturn) {
+					carriageReturn = false;
+					if (b != '\n') {
+						// A lone \r, this byte is already on the next line
+						buffer.position(buffer.position() - 1);
+					}
+					return takeLine();
+				}
+				if (b == '\r') {
+					// Same as MappedLineReader, but the \n may not be written yet
+					carriageReturn = true;
+					continue;
+				}
+				if (b == '\n') {
+					return takeLine();
+				}
+				if (lineLength == line.length) {
+					line = Arrays.copyOf(line, line.length * 2);
+				}
+				line[lineLength++] = b;
+				ascii &= b >= 0;
+			}
+
+			if (read() > 0) {
+				continue;
+			}
+
+			if (rotated()) {
+				// Whatever was written before rotating is on the old file
+				if (read() > 0) {
+					continue;
+				}
+				if (lineLength > 0 || carriageReturn) {
+					carriageReturn = false;
+					final var last = takeLine();
+					reopen();
+					return last;
+				}
+				reopen();
+				continue;
+			}
+
+			if (channel.size() < position) {
+				// Truncated: whatever we had of the last line is gone
+				position = 0;
+				lineLength = 0;
+				ascii = true;
+				carriageReturn = false;
+				continue;
+			}
+
+			try {
+				Thread.sleep(pollInterval);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public long position() {
+		return bytesRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private int read() throws IOException {
+		buffer.clear();
+		final int read = channel.read(buffer, position);
+		buffer.flip();
+		if (read > 0) {
+			position += read;
+			bytesRead += read;
+		}
+		return read;
+	}
+
+	private String takeLine() {
+		final var result = DecompressingLineReader.decode(line, lineLength, ascii);
+		lineLength = 0;
+		ascii = true;
+		return result;
+	}
+
+	private boolean rotated() throws IOException {
+		if (fileKey == null) {
+			// No way to tell on this file system, we can only detect truncation
+			return false;
+		}
+		try {
+			final var current = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+			return current != null && !current.equals(fileKey);
+		} catch (NoSuchFileException e) {
+			// Being rotated, the new file is not there yet
+			return false;
+		}
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		position = 0;
+	}
+
+	private void reopen() throws IOException {
+		channel.close();
+		open();
+	}
+}
@@ -0,0 +1,77 @@
+package tooling.leyden.commands.logparser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lines of a file, plain or compressed.
+ */
+public interface LineSource extends Closeable {
+
+	/**
+	 * @return The next line, without the line terminator, or null if there are no more lines.
+	 * It may be a view that is only valid until the next line is read.
+	 */
+	CharSequence nextLine() throws IOException;
+
+	/**
+	 * @return How many bytes of the file have been read so far.
+	 */
+	long position();
+
+	/**
+	 * Open the file with the reader that suits it best, looking at its first bytes to know if it is compressed.
+	 */
+	static LineSource open(Path path) throws IOException {
+		final var compression = Compression.of(path);
+		if (compression == Compression.None) {
+			return new MappedLineReader(path);
+		}
+		return new DecompressingLineReader(path, compression);
+	}
+
+	enum Compression {
+		None(new byte[0]),
+		Gzip(new byte[]{0x1f, (byte) 0x8b}),
+		Zstd(new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}),
+		Xz(new byte[]{(byte) 0xfd, '7', 'z', 'X', 'Z', 0x00});
+
+		private final byte[] magic;
+
+		Compression(byte[] magic) {
+			this.magic = magic;
+		}
+
+		public static Compression of(Path path) throws IOException {
+			final byte[] header = new byte[6];
+			int read = 0;
+			try (InputStream in = Files.newInputStream(path)) {
+				int n;
+				while (read < header.length && (n = in.read(header, read, header.length - read)) > 0) {
+					read += n;
+				}
+			}
+			for (Compression compression : values()) {
+				if (compression != None && startsWith(header, read, compression.magic)) {
+					return compression;
+				}
+			}
+			return None;
+		}
+
+		private static boolean startsWith(byte[] header, int length, byte[] magic) {
+			if (length < magic.length) {
+				return false;
+			}
+			for (int i = 0; i < magic.length; i++) {
+				if (header[i] != magic[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package tooling.leyden.commands.logparser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Zero-copy view of an ASCII line stored on a (usually mapped) buffer.
+ * Only use it for lines without multibyte characters: each byte is a char.
+ */
+final class LineView implements CharSequence {
+
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+
+	LineView() {
+	}
+
+	LineView(ByteBuffer buffer, int offset, int length) {
+		reset(buffer, offset, length);
+	}
+
+	LineView reset(ByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return (char) (buffer.get(offset + index) & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("[" + start + ", " + end + ") out of " + length);
+		}
+		return new LineView(buffer, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		final var bytes = new byte[length];
+		buffer.get(offset, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
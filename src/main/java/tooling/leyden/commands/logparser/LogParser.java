@@ -18,13 +18,13 @@ public abstract class LogParser extends Parser {
 	}
 
 	@Override
-	public void accept(String content) {
+	public void accept(CharSequence content) {
 		processLine(extractLineInformation(content));
 	}
 
 	abstract void processLine(Line line);
 
-	Line extractLineInformation(String content) {
+	Line extractLineInformation(CharSequence content) {
 		String[] tags = new String[]{};
 		String level = "unknown";
 		String message = "";
@@ -45,6 +45,6 @@ public abstract class LogParser extends Parser {
 		return Arrays.asList(tags).containsAll(Arrays.asList(wantedTags));
 	}
 
-	protected record Line(String content, String[] tags, String level, String message, String trimmedMessage) {
+	protected record Line(CharSequence content, String[] tags, String level, String message, String trimmedMessage) {
 	}
 }
@@ -0,0 +1,162 @@
+package tooling.leyden.commands.logparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a file through a memory mapping, without copying nor decoding them.
+ * ASCII lines (almost all of them on maps and logs) are returned as views over the mapped bytes,
+ * other lines are decoded as UTF-8.
+ * <p>
+ * Lines end with \n, \r\n or a lone \r, like they did with {@link java.util.Scanner}. Unlike Scanner, the Unicode
+ * line separators (U+0085, U+2028 and U+2029) are kept as part of the line, the JVM doesn't write them.
+ * Lines longer than the mapping window (1GB) can't be read and fail with an {@link IOException}.
+ */
+public class MappedLineReader implements LineSource {
+
+	// A mapping can't be bigger than Integer.MAX_VALUE, so big files are mapped in windows
+	static final long WINDOW_SIZE = 1L << 30;
+
+	private final FileChannel channel;
+	private final boolean ownsChannel;
+	private final long start;
+	private final long end;
+	private final boolean reuseView;
+	private final long windowSize;
+	private final LineView view = new LineView();
+
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int cursor;
+
+	/**
+	 * Read the whole file. The line returned is only valid until the next line is read.
+	 */
+	public MappedLineReader(Path path) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.READ), true, 0, -1, true, WINDOW_SIZE);
+	}
+
+	/**
+	 * Read the whole file through smaller windows, so lines crossing them can be tested.
+	 */
+	MappedLineReader(Path path, long windowSize) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.READ), true, 0, -1, true, windowSize);
+	}
+
+	/**
+	 * Read the lines between two positions of an already open channel.
+	 *
+	 * @param reuseView If false, each line returned is independent and can be kept after reading the next one.
+	 */
+	MappedLineReader(FileChannel channel, long from, long to, boolean reuseView) throws IOException {
+		this(channel, false, from, to, reuseView, WINDOW_SIZE);
+	}
+
+	private MappedLineReader(FileChannel channel, boolean ownsChannel, long from, long to, boolean reuseView,
+							 long windowSize) throws IOException {
+		this.channel = channel;
+		this.ownsChannel = ownsChannel;
+		this.start = from;
+		this.end = to < 0 ? channel.size() : to;
+		this.reuseView = reuseView;
+		this.windowSize = windowSize;
+		map(from);
+	}
+
+	@Override
+	public CharSequence nextLine() throws IOException {
+		while (windowStart + cursor < end) {
+			final int limit = window.limit();
+			// The last line ended on a \r\n split between this window and the next one
+			if (cursor >= limit) {
+				map(windowStart + cursor);
+				continue;
+			}
+			boolean ascii = true;
+			int i = cursor;
+			while (i < limit) {
+				final byte b = window.get(i);
+				if (b == '\n' || b == '\r') {
+					break;
+				}
+				if (b < 0) {
+					ascii = false;
+				}
+				i++;
+			}
+
+			// The line, or its \r\n, continues on the next window
+			if (i == limit && windowStart + limit < end && cursor == 0) {
+				throw new IOException("Line longer than " + windowSize + " bytes at position "
+						+ (windowStart - start) + ".");
+			}
+			if ((i == limit || (i == limit - 1 && window.get(i) == '\r')) && windowStart + limit < end
+					&& cursor > 0) {
+				map(windowStart + cursor);
+				continue;
+			}
+
+			final int lineStart = cursor;
+			final int lineEnd = i;
+			if (i == limit) {
+				cursor = i;
+			} else if (window.get(i) == '\r' && followedByNewLine(i)) {
+				cursor = i + 2;
+			} else {
+				cursor = i + 1;
+			}
+
+			if (!ascii) {
+				final var bytes = new byte[lineEnd - lineStart];
+				window.get(lineStart, bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+			return reuseView ? view.reset(window, lineStart, lineEnd - lineStart)
+					: new LineView(window, lineStart, lineEnd - lineStart);
+		}
+		return null;
+	}
+
+	@Override
+	public long position() {
+		return windowStart + cursor - start;
+	}
+
+	/**
+	 * @return How many bytes there are to read.
+	 */
+	public long size() {
+		return end - start;
+	}
+
+	// Looks on the next window too, the line may fill this one up to its \r
+	private boolean followedByNewLine(int i) throws IOException {
+		if (i + 1 < window.limit()) {
+			return window.get(i + 1) == '\n';
+		}
+		final long next = windowStart + i + 1;
+		if (next >= end) {
+			return false;
+		}
+		final var b = ByteBuffer.allocate(1);
+		return channel.read(b, next) == 1 && b.get(0) == '\n';
+	}
+
+	private void map(long from) throws IOException {
+		windowStart = from;
+		cursor = 0;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(windowSize, end - from));
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (ownsChannel) {
+			channel.close();
+		}
+	}
+}
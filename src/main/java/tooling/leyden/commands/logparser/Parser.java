@@ -8,8 +8,10 @@ import java.util.function.Consumer;
 
 /**
  * This class is capable of parsing (certain) Java logs.
+ * Lines are received as {@link CharSequence} because they may be views over the file being read: don't keep
+ * references to them after accept returns, call toString() on whatever part needs to be stored.
  */
-public abstract class Parser implements Consumer<String> {
+public abstract class Parser implements Consumer<CharSequence> {
 
 	protected final Information information;
 	protected final LoadFileCommand loadFile;
@@ -30,7 +30,7 @@ public class ProductionLogParser extends LogParser {
 			information.addWarning(null, trimmedMessage, WarningType.CacheLoad);
 		} else {
 			//Very generic, but at least catch things
-			information.getWarnings().add(new Warning(trimmedMessage));
+			information.addWarning(new Warning(trimmedMessage));
 		}
 	}
 
@@ -41,7 +41,7 @@ public class ProductionLogParser extends LogParser {
 			information.addWarning(null, trimmedMessage, WarningType.CacheLoad);
 		} else {
 			//Very generic, but at least catch things
-			information.getWarnings().add(new Warning(trimmedMessage));
+			information.addWarning(new Warning(trimmedMessage));
 		}
 	}
 
@@ -86,7 +86,7 @@ public class ProductionLogParser extends LogParser {
 				this.information.getStatistics().incrementValue("[LOG] Classes not loaded from AOT Cache");
 			}
 			e.addWhereDoesItComeFrom("Loaded during production from "
-					+ line.content().substring(line.content().indexOf("source: ")));
+					+ line.message().substring(line.message().indexOf("source: ")));
 			e.setLoaded(Element.WhichRun.Production);
 		}
 	}
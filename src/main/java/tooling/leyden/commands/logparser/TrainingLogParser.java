@@ -66,7 +66,7 @@ public class TrainingLogParser extends LogParser {
             Element e = ElementFactory.getOrCreate(className, "Class", null);
             e.addSource(getSource());
             e.addWhereDoesItComeFrom("Loaded during training from "
-                    + line.content().substring(line.content().indexOf("source: ")));
+                    + line.message().substring(line.message().indexOf("source: ")));
             e.setLoaded(Element.WhichRun.Training);
         }
     }
@@ -80,7 +80,7 @@ public class TrainingLogParser extends LogParser {
 
         if (trimmedMessage.startsWith("reverted klass")) {
 //	reverted klass  CP entry [102]: io/reactivex/rxjava3/internal/subscribers/InnerQueuedSubscriber unreg => io/reactivex/rxjava3/internal/util/QueueDrainHelper
-            information.getWarnings().add(
+            information.addWarning(
                     new Warning(
                             List.of(parentSymbol, assignClassToSymbol(findSymbol(splitMessage[3]))),
                             new AttributedString(trimmedMessage), WarningType.CacheCreationRevertedKlass));
@@ -90,7 +90,7 @@ public class TrainingLogParser extends LogParser {
 // reverted field  CP entry [ 45]: io/netty/channel/AbstractChannelHandlerContext => io/netty/channel/DefaultChannelPipeline.head:Lio/netty/channel/DefaultChannelPipeline$HeadContext;
 
             final var names = splitMessage[2].split(":");
-            information.getWarnings().add(
+            information.addWarning(
                     new Warning(
                             List.of(parentSymbol,
                                     assignClassToSymbol(findSymbol(names[1])),
@@ -102,7 +102,7 @@ public class TrainingLogParser extends LogParser {
                 || trimmedMessage.startsWith("reverted interface method")) {
 // reverted method CP entry [ 16]: io/reactivex/rxjava3/internal/jdk8/FlowableStageSubscriber java/util/concurrent/CompletableFuture.complete:(Ljava/lang/Object;)Z
             final var names = splitMessage[1].split(":");
-            information.getWarnings().add(
+            information.addWarning(
                     new Warning(
                             List.of(parentSymbol, assignClassToSymbol(findSymbol(names[1])),
                                     assignClassToSymbol(findSymbol(names[0].substring(0, names[0].lastIndexOf(".")))),
@@ -117,7 +117,7 @@ public class TrainingLogParser extends LogParser {
 // reverted indy   CP entry [294]: jdk/jfr/internal/dcmd/DCmdDump (0) => java/lang/invoke/LambdaMetafactory.metafactory:
 // (Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;
             final var names = splitMessage[2].split(":");
-            information.getWarnings().add(
+            information.addWarning(
                     new Warning(
                             List.of(parentSymbol, assignClassToSymbol(findSymbol(names[1])),
                                     assignClassToSymbol(findSymbol(names[0].substring(0, names[0].lastIndexOf(".")))),
@@ -270,13 +270,13 @@ public class TrainingLogParser extends LogParser {
             this.information.addWarning(aClass, trimmedMessage, WarningType.CacheCreation);
         } else {
             //Very generic, but at least catch things
-            information.getWarnings().add(new Warning(trimmedMessage));
+            information.addWarning(new Warning(trimmedMessage));
         }
     }
 
     private void processError(String trimmedMessage) {
         //Very generic, but at least catch things
-        information.getWarnings().add(new Warning(trimmedMessage));
+        information.addWarning(new Warning(trimmedMessage));
     }
 
     private void processInfo(String trimmedMessage) {
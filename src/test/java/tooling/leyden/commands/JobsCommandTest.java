@@ -0,0 +1,108 @@
+package tooling.leyden.commands;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import tooling.leyden.aotcache.ClassObject;
+import tooling.leyden.commands.logparser.AOTMapParser;
+import tooling.leyden.commands.logparser.ProductionLogParser;
+import tooling.leyden.commands.logparser.TrainingLogParser;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class JobsCommandTest extends DefaultTest {
+
+	@Test
+	void waitForJob() throws Exception {
+		File file = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache --background " + file.getAbsolutePath());
+
+		final var jobs = getDefaultCommand().getJobs().getAll();
+		final var job = jobs.getLast();
+		getSystemRegistry().execute("jobs wait " + job.getId());
+
+		assertEquals(Job.State.Done, job.getState());
+		assertFalse(getDefaultCommand().getInformation().getAll().isEmpty());
+
+		// Finished jobs are listed once
+		getSystemRegistry().execute("jobs");
+		assertTrue(getDefaultCommand().getJobs().get(job.getId()).isEmpty());
+		assertTrue(getDefaultCommand().getJobs().getAll().isEmpty());
+	}
+
+	@Test
+	void rollback() {
+		final var information = getDefaultCommand().getInformation();
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		final var aotCacheParser = new AOTMapParser(loadFile);
+		final var trainingParser = new TrainingLogParser(loadFile);
+
+		aotCacheParser.accept("0x0000000800868d58: @@ Class             520 java.lang.constant.ClassDesc");
+		final var before = List.copyOf(information.getAll());
+		final var externalBefore = information.getExternalElements().size();
+
+		final var changes = information.recordChanges();
+		aotCacheParser.accept("0x0000000801711128: @@ Class             624 org.infinispan.xsite.NoOpBackupSender");
+		aotCacheParser.accept("0x0000000800868d58: @@ Class             520 java.lang.constant.ClassDesc");
+		trainingParser.accept("[warning][aot] Skipping org/apache/logging/log4j/core/async/AsyncLoggerContext: Failed " +
+				"verification");
+		information.stopRecordingChanges();
+		assertEquals(2, information.getAll().size());
+		assertFalse(information.getWarnings().isEmpty());
+
+		information.rollback(changes);
+		assertEquals(before.size(), information.getAll().size());
+		assertTrue(information.getAll().containsAll(before));
+		assertTrue(information.getWarnings().isEmpty());
+		assertEquals(externalBefore, information.getExternalElements().size());
+		assertEquals(before.getFirst(), information.getByAddress("0x0000000800868d58"));
+	}
+
+	@Test
+	void rollbackChangesOnElementsAlreadyThere() {
+		final var information = getDefaultCommand().getInformation();
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		final var aotCacheParser = new AOTMapParser(loadFile);
+		final var productionParser = new ProductionLogParser(loadFile);
+
+		aotCacheParser.accept("0x0000000800868d58: @@ Class             520 java.lang.constant.ClassDesc");
+		aotCacheParser.accept("0x0000000800773e48: @@ Method            88 void java.lang.constant.ClassDesc.foo()");
+		information.getReferenceGraph().build();
+		final var classDesc = (ClassObject) information.getByAddress("0x0000000800868d58");
+		final var foo = classDesc.getMethods().getFirst();
+		final var sources = List.copyOf(classDesc.getSources());
+		final var whoReferences = List.copyOf(classDesc.getWhoReferencesMe());
+		final var statistics = Set.copyOf(information.getStatistics().getKeys());
+		final var loaded = classDesc.wasLoaded();
+
+		final var changes = information.recordChanges();
+		aotCacheParser.accept("0x0000000800773ea0: @@ Method            88 void java.lang.constant.ClassDesc.bar()");
+		aotCacheParser.accept("0x0000000800773ef8: @@ Method            88 void java.lang.constant.ClassDesc.foo()");
+		productionParser.accept("[info ][class,load         ] java.lang.constant.ClassDesc source: shared objects file");
+		information.addHeapRoot("0x0000000800000001");
+		information.stopRecordingChanges();
+		information.getReferenceGraph().build();
+		assertEquals(2, classDesc.getMethods().size());
+		assertNotEquals(loaded, classDesc.wasLoaded());
+		assertNotEquals(statistics, information.getStatistics().getKeys());
+
+		information.rollback(changes);
+		assertEquals(List.of(foo), classDesc.getMethods());
+		assertEquals(sources, classDesc.getSources());
+		assertEquals(loaded, classDesc.wasLoaded());
+		assertEquals(whoReferences, classDesc.getWhoReferencesMe());
+		assertEquals(List.of(classDesc), foo.getReferences());
+		assertEquals(statistics, information.getStatistics().getKeys());
+		aotCacheParser.accept("0x0000000800000001: @@ Class             520 java.lang.constant.Constable");
+		assertFalse(information.getByAddress("0x0000000800000001").isHeapRoot());
+	}
+}
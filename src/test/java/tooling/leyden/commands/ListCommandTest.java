@@ -3,13 +3,21 @@ package tooling.leyden.commands;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
 import tooling.leyden.aotcache.ClassObject;
+import tooling.leyden.aotcache.Element;
+import tooling.leyden.aotcache.Information;
 import tooling.leyden.aotcache.MethodObject;
+import tooling.leyden.aotcache.ReferencingElement;
 import tooling.leyden.commands.autocomplete.WhichRun;
 import tooling.leyden.commands.logparser.AOTMapParser;
 
+import java.io.File;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
@@ -22,7 +30,7 @@ class ListCommandTest extends DefaultTest {
 		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
 
 		aotCacheParser.accept("0x0000000801711128: @@ Class             624 org.infinispan.xsite.NoOpBackupSender");
-		aotCacheParser.accept("0x00000008017113f0: @@ ConstantPoolCache 64 org.infinispan.xsite.NoOpBackupSender");
+		aotCacheParser.accept("0x00000008017113f0: @@ Symbol            48 org/infinispan/xsite/NoOpBackupSender");
 		aotCacheParser.accept("0x00000008017116c0: @@ Method            88 org.infinispan.xsite.NoOpBackupSender org.infinispan.xsite.NoOpBackupSender.getInstance()");
 		aotCacheParser.accept("0x00000008017115b8: @@ Method            88 org.infinispan.interceptors" +
 				".InvocationStage org.infinispan.xsite.NoOpBackupSender.backupClear(org.infinispan.commands.write.ClearCommand)");
@@ -145,6 +153,9 @@ class ListCommandTest extends DefaultTest {
 		aotCacheParser.accept("0x000000080081b748: @@ Class             648 java.lang.Integer");
 		aotCacheParser.accept("0x00000000ffdf4f38: @@ Object (0xffdf4f38) java.lang.Class Ljava/util/ArrayList; (aot-inited)");
 		aotCacheParser.accept("0x00000000ffe5d0a0: @@ Object (0xffe5d0a0) java.lang.Integer");
+		aotCacheParser.accept("0x0000000800e2e4b0: @@ Class             624 java.lang.String");
+		aotCacheParser.accept("0x0000000800e2e8d8: @@ Class             624 java.lang.Class");
+		aotCacheParser.accept("0x0000000801bb65c8: @@ KlassTrainingData 40 java.lang.String");
 		aotCacheParser.accept("0x00000000ffd0a4c8: @@ Object (0xffd0a4c8) java.lang.String \"| resolve\"");
 
 		ListCommand command = new ListCommand();
@@ -166,4 +177,217 @@ class ListCommandTest extends DefaultTest {
 		assertEquals(0, command.findElements(new AtomicInteger()).count());
 	}
 
-}
\ No newline at end of file
+	@Test
+	void reuseIdsOfRemovedElements() {
+		final var information = getDefaultCommand().getInformation();
+		for (int i = 0; i < 1024; i++) {
+			information.addExternalElement(new ReferencingElement("Symbol" + i, "Symbol"));
+		}
+		// Found on the cache later, the ones outside of it are replaced until there are enough ids to give again
+		for (int i = 0; i < 1024; i++) {
+			information.addAOTCacheElement(new ReferencingElement("Symbol" + i, "Symbol"), "Test");
+		}
+		information.addAOTCacheElement(new ReferencingElement("last", "Symbol"), "Test");
+
+		final var parameters = new CommonParameters();
+		parameters.setTypes(new String[]{"Symbol"});
+		assertEquals(1025, information.count(parameters));
+		assertEquals(Map.of("Symbol", 1025), information.countByType(parameters));
+		assertTrue(information.getElements(parameters).allMatch(e -> e.getSources().contains("Test")));
+		parameters.setName("last");
+		assertEquals(1, information.count(parameters));
+		parameters.setName(null);
+		parameters.setUse(CommonParameters.ElementsToUse.notCached);
+		assertEquals(0, information.count(parameters));
+
+		information.addExternalElement(new ReferencingElement("outside", "Symbol"));
+		assertEquals(List.of("outside"), information.getElements(parameters).map(Element::getKey).toList());
+		parameters.setUse(CommonParameters.ElementsToUse.both);
+		assertEquals(1026, information.count(parameters));
+	}
+
+	@Test
+	void filterObjectsByPackage() {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
+
+		aotCacheParser.accept("0x00000008007f4648: @@ Class             512 java.lang.String");
+		aotCacheParser.accept("0x000000080081b748: @@ Class             648 java.lang.Integer");
+		aotCacheParser.accept("0x00000000ffe5d0a0: @@ Object (0xffe5d0a0) java.lang.Integer");
+		aotCacheParser.accept("0x00000000ffd0a4c8: @@ Object (0xffd0a4c8) java.lang.String \"| resolve\"");
+		aotCacheParser.accept("0x00000000ffd0a500: @@ Object (0xffd0a500) org.example.NotInTheCache");
+		aotCacheParser.accept("0x0000000802b7ac80: @@ ConstantPool      128 java.lang.Cloneable");
+
+		// Objects are in the package of their class, constant pools in the package of the class they belong to
+		ListCommand command = new ListCommand();
+		command.parent = getDefaultCommand();
+		command.parameters = new CommonParameters();
+		command.parameters.setTypes(new String[]{"Object", "ConstantPool"});
+		command.parameters.setPackageName(new String[]{"java.lang"});
+		assertEquals(3, command.findElements(new AtomicInteger()).count());
+		command.parameters.setPackageName(new String[]{"java.lang.Clone"});
+		assertEquals(0, command.findElements(new AtomicInteger()).count());
+		// Without its class, an object is in no package
+		command.parameters.setPackageName(new String[]{"org.example"});
+		assertEquals(0, command.findElements(new AtomicInteger()).count());
+		command.parameters.setPackageName(null);
+		command.parameters.setExcludePackageName(new String[]{"java.lang.Integer"});
+		assertEquals(3, command.findElements(new AtomicInteger()).count());
+		command.parameters.setExcludePackageName(new String[]{"java"});
+		assertEquals(0, command.findElements(new AtomicInteger()).count());
+	}
+
+	@Test
+	void sortedAndUpToDate() {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
+
+		aotCacheParser.accept("0x0000000801b99518: @@ Class             584 io.vertx.core.net.impl.SSLHelper");
+		aotCacheParser.accept("0x0000000801711128: @@ Class             624 org.infinispan.xsite.NoOpBackupSender");
+		aotCacheParser.accept("0x0000000801711610: @@ Method            88 void org.infinispan.xsite.NoOpBackupSender.<init>()");
+
+		ListCommand command = new ListCommand();
+		command.parent = getDefaultCommand();
+		command.parameters = new CommonParameters();
+		command.parameters.setTypes(new String[]{"Class"});
+		assertEquals(List.of("io.vertx.core.net.impl.SSLHelper", "org.infinispan.xsite.NoOpBackupSender"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+
+		// Elements added after listing show up in their place
+		aotCacheParser.accept("0x0000000801baacf8: @@ Class             544 java.lang.String");
+		assertEquals(List.of("io.vertx.core.net.impl.SSLHelper", "java.lang.String",
+						"org.infinispan.xsite.NoOpBackupSender"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+
+		command.parameters.setTypes(new String[]{"Class", "Method"});
+		assertEquals(List.of("io.vertx.core.net.impl.SSLHelper", "java.lang.String",
+						"org.infinispan.xsite.NoOpBackupSender", "void org.infinispan.xsite.NoOpBackupSender.<init>()"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+	}
+
+	@Test
+	void filtersFollowChanges() {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
+
+		aotCacheParser.accept("0x0000000801b99518: @@ Class             584 io.vertx.core.net.impl.SSLHelper");
+		aotCacheParser.accept("0x0000000801711128: @@ Class             624 org.infinispan.xsite.NoOpBackupSender");
+		aotCacheParser.accept("0x0000000801711610: @@ Method            88 void org.infinispan.xsite.NoOpBackupSender.<init>()");
+
+		ListCommand command = new ListCommand();
+		command.parent = getDefaultCommand();
+		command.parameters = new CommonParameters();
+		command.parameters.setPackageName(new String[]{"org.infinispan"});
+		assertEquals(List.of("org.infinispan.xsite.NoOpBackupSender", "void org.infinispan.xsite.NoOpBackupSender.<init>()"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+
+		command.parameters.setPackageName(null);
+		command.parameters.setExcludePackageName(new String[]{"org.infinispan"});
+		assertEquals(List.of("io.vertx.core.net.impl.SSLHelper"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+
+		// Loaded and trained change after the elements were added, the map already marks them as loaded on training
+		command.parameters.setExcludePackageName(null);
+		command.parameters.loaded = WhichRun.both;
+		assertEquals(0, command.findElements(new AtomicInteger()).count());
+		getDefaultCommand().getInformation().getElements("io.vertx.core.net.impl.SSLHelper", null, null, true, false,
+				"Class").forEach(e -> e.setLoaded(Element.WhichRun.Production));
+		assertEquals(List.of("io.vertx.core.net.impl.SSLHelper"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+
+		command.parameters.loaded = WhichRun.all;
+		command.parameters.trained = true;
+		assertEquals(0, command.findElements(new AtomicInteger()).count());
+		aotCacheParser.accept("0x0000000801bb65c8: @@ KlassTrainingData 40 org.infinispan.xsite.NoOpBackupSender");
+		command.parameters.setTypes(new String[]{"Class"});
+		assertEquals(List.of("org.infinispan.xsite.NoOpBackupSender"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+	}
+
+	@Test
+	void planMatchesFilters() throws Exception {
+		File file = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var information = getDefaultCommand().getInformation();
+		// The map has no heap objects, nor their classes, nor training
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
+		aotCacheParser.accept("0x0000000800e2e4b0: @@ Class             624 java.lang.String");
+		aotCacheParser.accept("0x0000000800e2e8d8: @@ Class             624 java.lang.Class");
+		aotCacheParser.accept("0x0000000801bb65c8: @@ KlassTrainingData 40 java.lang.String");
+		aotCacheParser.accept("0x00000000ffd0a4c8: @@ Object (0xffd0a4c8) java.lang.String \"| resolve\"");
+		aotCacheParser.accept("0x00000007ffd02620: @@ Object (0xfffa04c4) java.lang.Class Ljava/lang/ProcessEnvironment; (aot-inited)");
+
+		final var noClassFilters = new CommonParameters();
+		noClassFilters.setTypes(new String[]{"Class"});
+		noClassFilters.arrays = false;
+		noClassFilters.lambdas = false;
+		noClassFilters.innerClasses = false;
+		final var aotInited = new CommonParameters();
+		aotInited.setShowAOTInited(true);
+		final var strings = new CommonParameters();
+		strings.setInstanceOf("java.lang.String");
+		final var notHeapRoots = new CommonParameters();
+		notHeapRoots.setHeapRoot(false);
+		final var trained = new CommonParameters();
+		trained.trained = true;
+		final var loaded = new CommonParameters();
+		loaded.setLoaded(WhichRun.training);
+		final var classesAndMethods = new CommonParameters();
+		classesAndMethods.setTypes(new String[]{"Class", "Method"});
+		classesAndMethods.setPackageName(new String[]{"java.util"});
+		classesAndMethods.setExcludePackageName(new String[]{"java.util.concurrent"});
+		final var anyPackage = new CommonParameters();
+		anyPackage.setPackageName(new String[]{"java.lang"});
+		final var excludedPackages = new CommonParameters();
+		excludedPackages.setExcludePackageName(new String[]{"java", "sun.nio."});
+
+		for (CommonParameters parameters : List.of(noClassFilters, aotInited, strings, notHeapRoots, trained, loaded,
+				classesAndMethods, anyPackage, excludedPackages)) {
+			final var expected = Information.filterByParams(parameters, information.getAll().stream())
+					.collect(Collectors.toSet());
+			assertFalse(expected.isEmpty(), information.explain(parameters).toString());
+			assertEquals(expected, information.getElements(parameters).collect(Collectors.toSet()));
+			assertEquals(expected.size(), information.count(parameters));
+		}
+
+		assertTrue(information.explain(anyPackage).predicates().isEmpty());
+		final var referencing = new CommonParameters();
+		referencing.referencing = "java.lang.String";
+		assertEquals(List.of("--referencing"), information.explain(referencing).predicates());
+	}
+
+	@Test
+	void addressRange() {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
+
+		aotCacheParser.accept("0x0000000801711128: @@ Class             624 org.infinispan.xsite.NoOpBackupSender");
+		aotCacheParser.accept("0x0000000801711610: @@ Method            88 void org.infinispan.xsite.NoOpBackupSender.<init>()");
+		aotCacheParser.accept("0x0000000801b99518: @@ Class             584 io.vertx.core.net.impl.SSLHelper");
+		aotCacheParser.accept("0x00000008017113f0: @@ Symbol            48 org/infinispan/xsite/NoOpBackupSender");
+
+		ListCommand command = new ListCommand();
+		command.parent = getDefaultCommand();
+		command.parameters = new CommonParameters();
+		command.parameters.setAddressRange(new String[]{"0x0000000801711128", "0x801711610"});
+		assertEquals(List.of("0x0000000801711128", "0x00000008017113f0", "0x0000000801711610"),
+				command.findElements(new AtomicInteger()).map(Element::getAddress).toList());
+
+		command.parameters.setTypes(new String[]{"Class"});
+		assertEquals(List.of("org.infinispan.xsite.NoOpBackupSender"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+
+		// Same address, written without the leading zeros
+		command.parameters = new CommonParameters();
+		command.parameters.address = "0x801b99518";
+		assertEquals(List.of("io.vertx.core.net.impl.SSLHelper"),
+				command.findElements(new AtomicInteger()).map(Element::getKey).toList());
+	}
+
+}
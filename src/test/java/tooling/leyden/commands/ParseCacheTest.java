@@ -0,0 +1,116 @@
+package tooling.leyden.commands;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tooling.leyden.commands.logparser.AOTMapParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class ParseCacheTest extends DefaultTest {
+
+	@Test
+	void reloadFromCache(@TempDir Path dir) throws Exception {
+		final var cacheDir = dir.resolve("cache");
+		final var previous = System.setProperty("leyden.cacheDir", cacheDir.toString());
+		try {
+			final var information = getDefaultCommand().getInformation();
+			final var map = dir.resolve("aot.map");
+			Files.copy(new File(AOTMapParser.class.getResource("aot.map").getPath()).toPath(), map);
+
+			// Off by default while testing
+			getSystemRegistry().execute("load aotCache " + map);
+			assertFalse(Files.exists(cacheDir));
+			information.clear();
+
+			getSystemRegistry().execute("load aotCache --cache " + map);
+			final int parsed = information.countCached();
+			final var entries = entries(cacheDir);
+			assertEquals(1, entries.size());
+
+			// Same content somewhere else is the same entry
+			information.clear();
+			final var copy = Files.copy(map, dir.resolve("copy.map"));
+			Files.setLastModifiedTime(entries.getFirst(), FileTime.fromMillis(0));
+			getSystemRegistry().execute("load aotCache --cache " + copy);
+			assertEquals(parsed, information.countCached());
+			assertEquals(entries, entries(cacheDir));
+			assertNotEquals(0, Files.getLastModifiedTime(entries.getFirst()).toMillis());
+
+			// Loading into something already loaded parses it
+			getSystemRegistry().execute("load aotCache --cache " + map);
+			assertEquals(entries, entries(cacheDir));
+
+			// Different content, different entry, unless the cache is not used
+			information.clear();
+			Files.writeString(map, "0x0000000800e2e4b0: @@ Class             624 java.lang.String\n",
+					StandardOpenOption.APPEND);
+			getSystemRegistry().execute("load aotCache --no-cache " + map);
+			assertEquals(entries, entries(cacheDir));
+			information.clear();
+			getSystemRegistry().execute("load aotCache --cache " + map);
+			assertEquals(2, entries(cacheDir).size());
+		} finally {
+			if (previous == null) {
+				System.clearProperty("leyden.cacheDir");
+			} else {
+				System.setProperty("leyden.cacheDir", previous);
+			}
+		}
+	}
+
+	@Test
+	void notWhileLoading(@TempDir Path dir) throws Exception {
+		final var cacheDir = dir.resolve("cache");
+		final var previous = System.setProperty("leyden.cacheDir", cacheDir.toString());
+		final var loading = getDefaultCommand().getLoading().readLock();
+		loading.lock();
+		try {
+			// Something else is loading, it would be in the cache entry too
+			final var map = new File(AOTMapParser.class.getResource("aot.map").getPath());
+			getSystemRegistry().execute("load aotCache --cache " + map.getAbsolutePath());
+			assertTrue(getDefaultCommand().getInformation().countCached() > 0);
+			assertFalse(Files.exists(cacheDir));
+		} finally {
+			loading.unlock();
+			if (previous == null) {
+				System.clearProperty("leyden.cacheDir");
+			} else {
+				System.setProperty("leyden.cacheDir", previous);
+			}
+		}
+	}
+
+	@Test
+	void hash(@TempDir Path dir) throws Exception {
+		final var file = dir.resolve("file");
+		// Lengths around the eight bytes read at a time
+		for (String content : List.of("", "a", "abcdefg", "abcdefgh", "abcdefghi")) {
+			Files.writeString(file, content);
+			final long hash = ParseCache.hash(file);
+			assertEquals(hash, ParseCache.hash(file));
+			Files.writeString(file, content + " ");
+			assertNotEquals(hash, ParseCache.hash(file));
+		}
+	}
+
+	private static List<Path> entries(Path cacheDir) throws Exception {
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			final var entries = files.toList();
+			assertTrue(entries.stream().allMatch(p -> p.getFileName().toString().startsWith("AOTMapParser-")));
+			return entries;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package tooling.leyden.commands;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tooling.leyden.aotcache.ClassObject;
+import tooling.leyden.aotcache.Element;
+import tooling.leyden.aotcache.Information;
+import tooling.leyden.aotcache.MethodObject;
+import tooling.leyden.aotcache.PlaceHolderElement;
+import tooling.leyden.aotcache.ReferencingElement;
+import tooling.leyden.aotcache.Warning;
+import tooling.leyden.aotcache.WarningType;
+import tooling.leyden.commands.logparser.AOTMapParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class SaveCommandTest extends DefaultTest {
+
+	@Test
+	void saveAndLoad(@TempDir Path dir) throws Exception {
+		File file = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var information = getDefaultCommand().getInformation();
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		AOTMapParser aotCacheParser = new AOTMapParser(loadFile);
+		aotCacheParser.accept("0x0000000800e2e4b0: @@ Class             624 java.lang.String");
+		aotCacheParser.accept("0x0000000801bb65c8: @@ KlassTrainingData 40 java.lang.String");
+		aotCacheParser.accept("0x00000000ffd0a4c8: @@ Object (0xffd0a4c8) java.lang.String \"| resolve\"");
+		information.getConfiguration().addValue("ArchiveRelocationMode", "1");
+		information.getStatistics().addValue("[CodeCache] Nmethod", 42);
+		information.addWarning(information.getElements("java.lang.String", null, null, true, false, "Class")
+				.findAny().orElseThrow(), "Not trained enough", WarningType.Training);
+		// Waits for something to be on its address
+		final var string = (ReferencingElement) information.getByAddress("0x00000000ffd0a4c8");
+		string.addReference(new PlaceHolderElement("0x00000000ffd0a500"));
+		information.getReferenceGraph().build();
+
+		final var expected = describeAll(information);
+		final var expectedWarnings = information.getWarnings().stream().map(Warning::getDescription).toList();
+		final var expectedString = describe("cached", information.getByAddress("0x0000000800e2e4b0"));
+		final int expectedCount = information.countCached();
+		final var snapshot = dir.resolve("aot.snapshot");
+		getSystemRegistry().execute("save " + snapshot);
+		assertTrue(Files.size(snapshot) > 0);
+
+		information.clear();
+		getSystemRegistry().execute("load snapshot " + snapshot);
+		// Elements are created when something looks for them
+		assertEquals(expectedCount, information.countCached());
+		assertEquals(expectedString, describe("cached", information.getElements("java.lang.String", null, null,
+				true, false, "Class").findAny().orElseThrow()));
+		assertFalse(information.getAll().isEmpty());
+		assertEquals(expected, describeAll(information));
+		assertEquals(expectedWarnings, information.getWarnings().stream().map(Warning::getDescription).toList());
+		assertEquals("1", information.getConfiguration().getValue("ArchiveRelocationMode"));
+		assertEquals(42, information.getStatistics().getValue("[CodeCache] Nmethod"));
+
+		// Fields point to the loaded elements
+		final var loadedString = (ClassObject) information.getByAddress("0x0000000800e2e4b0");
+		assertSame(information.getByAddress("0x0000000801bb65c8"), loadedString.getKlassTrainingData());
+		assertTrue(loadedString.isTrained());
+		information.getElements(null, null, null, true, false, "Method").limit(100).forEach(e -> {
+			final var method = (MethodObject) e;
+			assertNotNull(method.getClassObject());
+			assertTrue(method.getClassObject().getMethods().contains(method));
+		});
+
+		// Filters go through the index
+		final var trained = new CommonParameters();
+		trained.trained = true;
+		assertEquals(List.of("java.lang.String"), information.getElements(trained).map(Element::getKey).toList());
+
+		// The reference waiting for its address finds it
+		aotCacheParser.accept("0x00000000ffd0a500: @@ Object (0xffd0a500) java.lang.String \"other\"");
+		information.getReferenceGraph().build();
+		final var loaded = (ReferencingElement) information.getByAddress("0x00000000ffd0a4c8");
+		assertTrue(loaded.getReferences().contains(information.getByAddress("0x00000000ffd0a500")));
+	}
+
+	@Test
+	void referencesBeforeCreatingEverything(@TempDir Path dir) throws Exception {
+		File file = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var information = getDefaultCommand().getInformation();
+		final var snapshot = dir.resolve("aot.snapshot");
+		getSystemRegistry().execute("save " + snapshot);
+		information.clear();
+		getSystemRegistry().execute("load snapshot " + snapshot);
+
+		// Built with only the elements found so far, the rest are created when the rows get read
+		final var object = (ClassObject) information.getByAddress("0x0000000800773c38");
+		final var references = List.copyOf(object.getReferences());
+		object.addReference(new PlaceHolderElement("0x0000000800773a28"));
+		information.getReferenceGraph().resolvePlaceholders();
+		final var other = information.getByAddress("0x0000000800773a28");
+		assertTrue(object.getReferences().contains(other));
+		assertTrue(object.getReferences().containsAll(references));
+		assertEquals(object.getReferences().stream().map(Element::getType).sorted().toList(),
+				object.getReferences().stream().map(Element::getType).toList());
+		assertTrue(other.getWhoReferencesMe().contains(object));
+		references.forEach(e -> assertTrue(e.getWhoReferencesMe().contains(object)));
+	}
+
+	@Test
+	void notWhileLoading(@TempDir Path dir) throws Exception {
+		File file = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var information = getDefaultCommand().getInformation();
+		final int loaded = information.countCached();
+		final var snapshot = dir.resolve("aot.snapshot");
+		getSystemRegistry().execute("save " + snapshot);
+		information.clear();
+
+		final var loading = getDefaultCommand().getLoading().readLock();
+		loading.lock();
+		try {
+			// Something else is loading, it could be halfway
+			getSystemRegistry().execute("save " + dir.resolve("other.snapshot"));
+			assertFalse(Files.exists(dir.resolve("other.snapshot")));
+			getSystemRegistry().execute("load snapshot " + snapshot);
+			assertTrue(information.isEmpty());
+		} finally {
+			loading.unlock();
+		}
+		getSystemRegistry().execute("load snapshot " + snapshot);
+		assertEquals(loaded, information.countCached());
+	}
+
+	@Test
+	void notASnapshot(@TempDir Path dir) throws Exception {
+		final var notSnapshot = dir.resolve("aot.map");
+		Files.writeString(notSnapshot, "0x0000000800e2e4b0: @@ Class             624 java.lang.String");
+		getSystemRegistry().execute("load snapshot " + notSnapshot);
+		assertTrue(getDefaultCommand().getInformation().getAll().isEmpty());
+	}
+
+	private static List<String> describeAll(Information information) {
+		return Stream.concat(information.getAll().stream().map(e -> describe("cached", e)),
+						information.getExternalElements().values().stream().map(e -> describe("external", e)))
+				.sorted()
+				.toList();
+	}
+
+	private static String describe(String where, Element e) {
+		return where + " " + e.getType() + " " + e.getKey() + " " + e.getAddress() + " " + e.getSize() + " "
+				+ e.wasLoaded() + " " + e.isHeapRoot() + " " + e.isTrained() + " " + e.getSources()
+				+ " " + e.getWhoReferencesMe().stream().map(Element::getKey).sorted().toList()
+				+ (e instanceof ReferencingElement re ? " " + re.getReferences().stream().map(Element::getKey).toList()
+				: "");
+	}
+}
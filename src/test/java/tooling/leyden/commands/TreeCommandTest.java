@@ -7,10 +7,13 @@ import tooling.leyden.aotcache.Information;
 import tooling.leyden.commands.logparser.AOTMapParser;
 import tooling.leyden.commands.logparser.TrainingLogParser;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
@@ -19,35 +22,7 @@ class TreeCommandTest extends DefaultTest {
 
 	@Test
 	void getReferencedFromSymbolGraph() {
-		final var loadFile = new LoadFileCommand();
-		loadFile.setParent(getDefaultCommand());
-		final var parser = new TrainingLogParser(loadFile);
-		final var aotParser = new AOTMapParser(loadFile);
-
-		aotParser.accept("0x00000008018dfad0: @@ Class             696 org.infinispan.rest.framework.impl.InvocationImpl");
-		aotParser.accept("0x0000000800772850: @@ Class             528 java.lang.Object");
-		aotParser.accept("0x0000000800e6d478: @@ Class             592 org.infinispan.security.AuthorizationPermission");
-		aotParser.accept("0x000000080077e3b0: @@ Class             520 java.util.Set");
-		aotParser.accept("0x00000008003483b0: @@ Class             520 java.lang.String");
-		aotParser.accept("0x00000008003483b0: @@ Class             520 java.util.function.Function");
-		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 org/infinispan/rest/framework/impl/InvocationImpl");
-		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 Ljava/util/Set;");
-		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 java/lang/Object");
-
-		parser.accept("[trace][aot,resolve              ] archived klass  CP entry [  2]: org/infinispan/rest/framework/impl/InvocationImpl unreg => java/lang/Object boot");
-		parser.accept("[trace][aot,resolve              ] archived klass  CP entry [  8]: org/infinispan/rest/framework/impl/InvocationImpl unreg => org/infinispan/rest/framework/impl/InvocationImpl unreg");
-		parser.accept("[trace][aot,resolve              ] archived field  CP entry [  7]: org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.methods:Ljava/util/Set;");
-		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 13]: org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.paths:Ljava/util/Set;");
-		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 16]: org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.handler:Ljava/util/function/Function;");
-		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 20]: " +
-				"org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.action:Ljava/lang/String;");
-		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 24]: " +
-				"org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.name:Ljava/lang/String;");
-		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 27]: " +
-				"org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.anonymous:Z");
-		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 java/lang/function/Function");
-		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 java/lang/String");
-		aotParser.accept("0x0000000800e6d478: @@ Symbol            592 org/infinispan/security/AuthorizationPermission");
+		loadInvocationImpl();
 
 		TreeCommand command = new TreeCommand();
 		command.parent = getDefaultCommand();
@@ -97,4 +72,127 @@ class TreeCommandTest extends DefaultTest {
 		elements.stream().anyMatch(e -> e.getType().equalsIgnoreCase("Class"));
 		elements.stream().anyMatch(e -> e.getType().equalsIgnoreCase("Symbol"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void walk() throws Exception {
+		loadInvocationImpl();
+		TreeCommand command = new TreeCommand();
+		command.parent = getDefaultCommand();
+		command.parameters = new CommonParameters();
+		command.parameters.types = new String[]{"Class", "Object", "Symbol"};
+		command.reverse = false;
+		command.level = 3;
+		command.max = -1;
+
+		Element root = Information.getMyself()
+				.getElements("org.infinispan.rest.framework.impl.InvocationImpl", null, null, true, true, "Class")
+				.findAny().get();
+		final var lines = new ArrayList<TreeCommand.Line>();
+		try (var walk = command.new Walk(root)) {
+			walk.forEachRemaining(lines::add);
+			assertFalse(walk.isInterrupted());
+		}
+		assertTrue(lines.size() > 2);
+		// Depth first, each element expanded the first time it is shown
+		final var shown = new HashSet<Element>(List.of(root));
+		for (int i = 0; i < lines.size(); i++) {
+			final var line = lines.get(i);
+			assertEquals(shown.add(line.element()), line.isExpanded());
+			assertTrue(line.depth() >= 1 && line.depth() <= command.level + 1);
+			if (i > 0) {
+				assertTrue(line.depth() <= lines.get(i - 1).depth() + 1);
+				assertEquals(line.depth() > lines.get(i - 1).depth(), line.isFirst());
+			}
+		}
+
+		// Stops as soon as it has shown more than max
+		command.max = 1;
+		try (var walk = command.new Walk(root)) {
+			assertTrue(walk.hasNext());
+			walk.next();
+			assertFalse(walk.hasNext());
+		}
+
+		// Ctrl-C interrupts the thread walking
+		command.max = -1;
+		try (var walk = command.new Walk(root)) {
+			Thread.currentThread().interrupt();
+			assertFalse(walk.hasNext());
+			assertTrue(walk.isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+
+		// Printed as it is found
+		getSystemRegistry().execute("tree -i org.infinispan.rest.framework.impl.InvocationImpl -l 6 -max -1");
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	@Test
+	void reverseThroughAddress() {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		final var aotParser = new AOTMapParser(loadFile);
+		// The descriptor refers to the string by its address, before the string is on the map
+		List.of("0x00000008007f4290: @@ Class             688 java.lang.String",
+				"0x00000008008057c8: @@ Class             560 java.lang.module.ModuleDescriptor",
+				"0x00000000ffd074c0: @@ Object (0xffd074c0) java.lang.module.ModuleDescriptor",
+				" - klass: 'java/lang/module/ModuleDescriptor' 0x00000008008057c8",
+				" - fields (8 words):",
+				" - private final 'name' 'Ljava/lang/String;' @20 0x00000000ffd07500 (0xffd07500) java.lang.String " +
+						"\"jdk.internal.opt\"",
+				"0x00000000ffd07500: @@ Object (0xffd07500) java.lang.String \"jdk.internal.opt\"",
+				" - klass: 'java/lang/String' 0x00000008007f4290").forEach(aotParser::accept);
+		aotParser.postProcessing();
+
+		final var information = Information.getMyself();
+		final var descriptor = information.getByAddress("0x00000000ffd074c0");
+		final var string = information.getByAddress("0x00000000ffd07500");
+		assertTrue(string.getWhoReferencesMe().contains(descriptor));
+
+		TreeCommand command = new TreeCommand();
+		command.parent = getDefaultCommand();
+		command.parameters = new CommonParameters();
+		command.parameters.types = new String[]{"Object"};
+		command.reverse = true;
+		command.level = 1;
+		command.max = -1;
+		final var lines = new ArrayList<TreeCommand.Line>();
+		try (var walk = command.new Walk(string)) {
+			walk.forEachRemaining(lines::add);
+		}
+		assertEquals(List.of(descriptor), lines.stream().map(TreeCommand.Line::element).toList());
+	}
+
+	private static void loadInvocationImpl() {
+		final var loadFile = new LoadFileCommand();
+		loadFile.setParent(getDefaultCommand());
+		final var parser = new TrainingLogParser(loadFile);
+		final var aotParser = new AOTMapParser(loadFile);
+
+		aotParser.accept("0x00000008018dfad0: @@ Class             696 org.infinispan.rest.framework.impl.InvocationImpl");
+		aotParser.accept("0x0000000800772850: @@ Class             528 java.lang.Object");
+		aotParser.accept("0x0000000800e6d478: @@ Class             592 org.infinispan.security.AuthorizationPermission");
+		aotParser.accept("0x000000080077e3b0: @@ Class             520 java.util.Set");
+		aotParser.accept("0x00000008003483b0: @@ Class             520 java.lang.String");
+		aotParser.accept("0x00000008003483b0: @@ Class             520 java.util.function.Function");
+		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 org/infinispan/rest/framework/impl/InvocationImpl");
+		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 Ljava/util/Set;");
+		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 java/lang/Object");
+
+		parser.accept("[trace][aot,resolve              ] archived klass  CP entry [  2]: org/infinispan/rest/framework/impl/InvocationImpl unreg => java/lang/Object boot");
+		parser.accept("[trace][aot,resolve              ] archived klass  CP entry [  8]: org/infinispan/rest/framework/impl/InvocationImpl unreg => org/infinispan/rest/framework/impl/InvocationImpl unreg");
+		parser.accept("[trace][aot,resolve              ] archived field  CP entry [  7]: org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.methods:Ljava/util/Set;");
+		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 13]: org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.paths:Ljava/util/Set;");
+		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 16]: org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.handler:Ljava/util/function/Function;");
+		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 20]: " +
+				"org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.action:Ljava/lang/String;");
+		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 24]: " +
+				"org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.name:Ljava/lang/String;");
+		parser.accept("[trace][aot,resolve              ] archived field  CP entry [ 27]: " +
+				"org/infinispan/rest/framework/impl/InvocationImpl => org/infinispan/rest/framework/impl/InvocationImpl.anonymous:Z");
+		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 java/lang/function/Function");
+		aotParser.accept("0x0000000801e022e8: @@ Symbol            24 java/lang/String");
+		aotParser.accept("0x0000000800e6d478: @@ Symbol            592 org/infinispan/security/AuthorizationPermission");
+	}
+}
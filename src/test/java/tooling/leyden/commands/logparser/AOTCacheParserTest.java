@@ -1,18 +1,30 @@
 package tooling.leyden.commands.logparser;
 
+import io.airlift.compress.zstd.ZstdOutputStream;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
 import tooling.leyden.aotcache.*;
 import tooling.leyden.commands.DefaultTest;
 import tooling.leyden.commands.LoadFileCommand;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -59,6 +71,148 @@ class AOTCacheParserTest extends DefaultTest {
 		assertEquals(494 + 5, aotCache.getElements(null, null, null, true, true, "Class").count());
 		assertEquals(5927, aotCache.getElements(null, null, null, true, false, "Method").count());
 		assertEquals(1385, aotCache.getElements(null, null, null, true, false, "ConstMethod").count());
+
+		//Repeated strings are shared between elements
+		final var types = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+		aotCache.getAll().forEach(e -> types.add(e.getType()));
+		assertEquals(aotCache.getAll().stream().map(Element::getType).distinct().count(), types.size());
+		final var packages = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+		aotCache.getElements(null, null, null, true, false, "Class").toList()
+				.forEach(e -> packages.add(((ClassObject) e).getPackageName()));
+		assertEquals(packages.stream().distinct().count(), packages.size());
+	}
+
+	@Test
+	void referenceGraph() throws Exception {
+		File file = new File(getClass().getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+
+		// Every reference can be walked back, and only what references an element says it references it
+		final var graph = information.getReferenceGraph();
+		information.getAll().stream()
+				.filter(e -> e instanceof ReferencingElement)
+				.forEach(e -> ((ReferencingElement) e).getReferences().forEach(ref -> {
+					assertInstanceOf(Element.class, ref);
+					assertFalse(ref instanceof PlaceHolderElement, e + " has a placeholder " + ref);
+					assertTrue(graph.getReferencing(ref).contains(e), ref + " should be referenced by " + e);
+					assertTrue(ref.getWhoReferencesMe().contains(e), ref + " should be referenced by " + e);
+				}));
+		information.getAll().forEach(e -> graph.getReferencing(e).forEach(by ->
+				assertTrue(((ReferencingElement) by).getReferences().contains(e), by + " should reference " + e)));
+		// Rows keep references grouped by type
+		information.getAll().stream()
+				.filter(e -> e instanceof ReferencingElement)
+				.map(e -> ((ReferencingElement) e).getReferences())
+				.forEach(references -> assertEquals(references.stream().map(Element::getType).sorted().toList(),
+						references.stream().map(Element::getType).toList()));
+
+		// References added after the graph was built are seen right away
+		final var element = (ReferencingElement) information.getElements(null, null, null, true, false, "Symbol")
+				.findAny().get();
+		final var method = information.getElements(null, null, null, true, false, "Method").findAny().get();
+		assertFalse(element.getReferences().contains(method));
+		element.addReference(method);
+		assertTrue(element.getReferences().contains(method));
+		assertTrue(element.anyReference(method::equals));
+		assertEquals(element.getReferences().stream().map(Element::getType).sorted().toList(),
+				element.getReferences().stream().map(Element::getType).toList());
+		assertTrue(method.getWhoReferencesMe().contains(element));
+		graph.build();
+		assertTrue(element.anyReference(method::equals));
+		final var references = new ArrayList<Element>();
+		element.forEachReference(references::add);
+		assertEquals(Set.copyOf(element.getReferences()), Set.copyOf(references));
+		assertEquals(element.getReferences().size(), references.size());
+	}
+
+	@Test
+	void referenceGraphWhileLoading() throws Exception {
+		File file = new File(getClass().getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var graph = information.getReferenceGraph();
+		final var elements = information.getAll().stream()
+				.filter(e -> e instanceof ReferencingElement re && !re.getReferences().isEmpty())
+				.map(e -> (ReferencingElement) e)
+				.limit(2).toList();
+		final var element = elements.getFirst();
+		final var untouched = elements.getLast();
+		final var untouchedReferences = List.copyOf(untouched.getReferences());
+
+		// Nothing there yet, the placeholder waits for its address
+		final var address = "0x0000000fffffff00";
+		element.addReference(new PlaceHolderElement(address));
+		graph.build();
+		assertTrue(element.getReferences().stream().anyMatch(e -> e instanceof PlaceHolderElement));
+
+		// While loading, who references an element is answered from the last build
+		graph.loadStarted();
+		final var found = new ReferencingElement("found", "Object");
+		found.setAddress(address);
+		information.addExternalElement(found);
+		assertFalse(found.getWhoReferencesMe().contains(element));
+		graph.loadFinished();
+		assertEquals(List.of(element), found.getWhoReferencesMe());
+		assertTrue(element.getReferences().contains(found));
+		assertFalse(element.getReferences().stream().anyMatch(e -> e instanceof PlaceHolderElement));
+		assertEquals(untouchedReferences, untouched.getReferences());
+	}
+
+	@Test
+	void referenceGraphOffHeap() throws Exception {
+		File file = new File(getClass().getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var expected = describeAll();
+		final var expectedWhoReferences = countWhoReferences();
+
+		information.clear();
+		information.getReferenceGraph().setOffHeap(true);
+		try {
+			getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+			assertEquals(expected, describeAll());
+			assertEquals(expectedWhoReferences, countWhoReferences());
+		} finally {
+			information.getReferenceGraph().setOffHeap(false);
+		}
+	}
+
+	private long countWhoReferences() {
+		return information.getAll().stream().mapToLong(e -> e.getWhoReferencesMe().size()).sum();
+	}
+
+	@Test
+	void acceptCompressed(@TempDir Path dir) throws Exception {
+		File file = new File(getClass().getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache " + file.getAbsolutePath());
+		final var expected = describeAll();
+
+		final var compressed = List.of(
+				compress(file, dir.resolve("aot.map.gz"), GZIPOutputStream::new),
+				compress(file, dir.resolve("aot.map.xz"), out -> new XZOutputStream(out, new LZMA2Options())),
+				compress(file, dir.resolve("aot.map.zst"), ZstdOutputStream::new));
+		for (Path path : compressed) {
+			information.clear();
+			getSystemRegistry().execute("load aotCache " + path.toAbsolutePath());
+			assertEquals(expected, describeAll(), path.toString());
+		}
+	}
+
+	private static Path compress(File file, Path target, Compressor compressor) throws IOException {
+		try (OutputStream out = compressor.wrap(Files.newOutputStream(target))) {
+			Files.copy(file.toPath(), out);
+		}
+		return target;
+	}
+
+	private interface Compressor {
+		OutputStream wrap(OutputStream out) throws IOException;
+	}
+
+	private List<String> describeAll() {
+		return information.getAll().stream()
+				.map(e -> e.getType() + " " + e.getKey() + " " + e.getAddress() + " " + e.getSize() + " "
+						+ (e instanceof ReferencingElement re ? re.getReferences().size() : 0))
+				.sorted()
+				.toList();
 	}
 
 	@Test
@@ -600,6 +754,12 @@ class AOTCacheParserTest extends DefaultTest {
 		assertTrue(((ReferencingElement) e).getReferences().stream()
 				.anyMatch(ref -> ref.getAddress().equalsIgnoreCase("0x000000080081b748")));
 		assertEquals(1, ((ReferencingElement) e).getReferences().size());
+		// Forward references resolved after reading the whole map are also known by the referenced element
+		assertTrue(e.getWhoReferencesMe().contains(information.getByAddress("0x00000000ffd05450")));
+		assertTrue(e.getWhoReferencesMe().contains(information.getByAddress("0x00000000ffd07568")));
+		assertTrue(information.getAll().stream()
+				.noneMatch(element -> element instanceof ReferencingElement re
+						&& re.getReferences().stream().anyMatch(ref -> ref instanceof PlaceHolderElement)));
 
 		e = information.getByAddress("0x00000000ffdf4f38");
 		assertEquals("Object", e.getType());
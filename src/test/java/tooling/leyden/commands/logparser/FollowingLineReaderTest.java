@@ -0,0 +1,133 @@
+package tooling.leyden.commands.logparser;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tooling.leyden.aotcache.Configuration;
+import tooling.leyden.commands.DefaultTest;
+import tooling.leyden.commands.Job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class FollowingLineReaderTest extends DefaultTest {
+
+	@Test
+	void followTruncateAndRotate(@TempDir Path dir) throws Exception {
+		final var log = dir.resolve("production.log");
+		Files.writeString(log, "one\npart");
+
+		try (var reader = new FollowingLineReader(log, 10)) {
+			assertEquals("one", reader.nextLine().toString());
+
+			Files.writeString(log, "ial\r\ntwo\n", StandardOpenOption.APPEND);
+			assertEquals("partial", reader.nextLine().toString());
+			assertEquals("two", reader.nextLine().toString());
+
+			// Line breaks as MappedLineReader sees them, even when the \n comes later
+			Files.writeString(log, "crlf\r", StandardOpenOption.APPEND);
+			final var crlf = CompletableFuture.supplyAsync(() -> {
+				try {
+					return reader.nextLine().toString();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			Thread.sleep(100);
+			Files.writeString(log, "\nlone\rcr\n", StandardOpenOption.APPEND);
+			assertEquals("crlf", crlf.get());
+			assertEquals("lone", reader.nextLine().toString());
+			assertEquals("cr", reader.nextLine().toString());
+
+			// Truncated, as when the JVM is restarted
+			Files.writeString(log, "new\n");
+			assertEquals("new", reader.nextLine().toString());
+
+			// Rotated: the old file gets a last line before being renamed
+			Files.writeString(log, "last\n", StandardOpenOption.APPEND);
+			Files.move(log, dir.resolve("production.log.0"));
+			Files.writeString(log, "rotated\n");
+			assertEquals("last", reader.nextLine().toString());
+			assertEquals("rotated", reader.nextLine().toString());
+		}
+	}
+
+	@Test
+	void followProductionLog(@TempDir Path dir) throws Exception {
+		final var log = dir.resolve("production.log");
+		Files.writeString(log, "[info][class,load] java.lang.Object source: shared objects file\n");
+
+		getSystemRegistry().execute("load productionLog --follow " + log.toAbsolutePath());
+		final var job = getDefaultCommand().getJobs().getAll().getLast();
+		final var statistics = getDefaultCommand().getInformation().getStatistics();
+		final var key = "[LOG] Classes loaded from AOT Cache";
+		awaitValue(statistics, key, 1);
+
+		Files.writeString(log, "[info][class,load] java.lang.String source: shared objects file\n",
+				StandardOpenOption.APPEND);
+		awaitValue(statistics, key, 2);
+
+		// Other loads don't change what the job does
+		final var map = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		getSystemRegistry().execute("load aotCache --no-cache " + map.getAbsolutePath());
+
+		getSystemRegistry().execute("jobs cancel " + job.getId());
+		assertEquals(Job.State.Stopped, job.getState());
+		assertEquals(2, statistics.getValue(key));
+		assertFalse(getDefaultCommand().getInformation().getAll().isEmpty());
+	}
+
+	@Test
+	void followSeveralFiles(@TempDir Path dir) throws Exception {
+		final var first = dir.resolve("first.log");
+		final var second = dir.resolve("second.log");
+		Files.writeString(first, "[info][class,load] java.lang.Object source: shared objects file\n");
+		Files.writeString(second, "[info][class,load] java.lang.String source: shared objects file\n");
+
+		// Followed files don't wait for each other to finish, they never do
+		getSystemRegistry().execute("load productionLog --follow " + first.toAbsolutePath() + " "
+				+ second.toAbsolutePath());
+		final var jobs = getDefaultCommand().getJobs().getAll();
+		final var statistics = getDefaultCommand().getInformation().getStatistics();
+		awaitValue(statistics, "[LOG] Classes loaded from AOT Cache", 2);
+
+		// Nor do loads that need nothing else to be loading
+		getDefaultCommand().getInformation().clear();
+		final var map = new File(AOTMapParser.class.getResource("aot.map").getPath());
+		final var previous = System.setProperty("leyden.cacheDir", dir.resolve("cache").toString());
+		try {
+			getSystemRegistry().execute("load aotCache --cache " + map.getAbsolutePath());
+			assertTrue(Files.exists(dir.resolve("cache")));
+		} finally {
+			if (previous == null) {
+				System.clearProperty("leyden.cacheDir");
+			} else {
+				System.setProperty("leyden.cacheDir", previous);
+			}
+		}
+
+		for (Job job : jobs.subList(jobs.size() - 2, jobs.size())) {
+			getSystemRegistry().execute("jobs cancel " + job.getId());
+			assertEquals(Job.State.Stopped, job.getState());
+		}
+	}
+
+	private static void awaitValue(Configuration statistics, String key, Integer value)
+			throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 10_000;
+		while (!value.equals(statistics.getValue(key)) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(value, statistics.getValue(key));
+	}
+}
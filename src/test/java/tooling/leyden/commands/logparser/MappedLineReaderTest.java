@@ -0,0 +1,76 @@
+package tooling.leyden.commands.logparser;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tooling.leyden.commands.DefaultTest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+class MappedLineReaderTest extends DefaultTest {
+
+	// Same lines as Scanner would give
+	private static final String CONTENT = "unix\nwindows\r\nmac\rempty\n\nünicode\r\rlast";
+	private static final List<String> LINES = List.of("unix", "windows", "mac", "empty", "", "ünicode", "", "last");
+
+	@Test
+	void lineTerminators(@TempDir Path dir) throws Exception {
+		final var file = dir.resolve("lines.log");
+		Files.writeString(file, CONTENT);
+
+		try (var reader = new MappedLineReader(file)) {
+			assertEquals(LINES, lines(reader));
+			assertEquals(Files.size(file), reader.position());
+		}
+	}
+
+	@Test
+	void lineTerminatorsAcrossWindows(@TempDir Path dir) throws Exception {
+		final var file = dir.resolve("lines.log");
+		Files.writeString(file, CONTENT);
+
+		// From windows just as long as the longest line with its \r, so each \r\n gets split somewhere
+		for (long windowSize = 9; windowSize <= Files.size(file); windowSize++) {
+			try (var reader = new MappedLineReader(file, windowSize)) {
+				assertEquals(LINES, lines(reader), "Window of " + windowSize + " bytes");
+				assertEquals(Files.size(file), reader.position());
+			}
+		}
+
+		// A line filling the whole window up to its \r, with the \n on the next one
+		Files.writeString(file, "windows\r\nlast");
+		try (var reader = new MappedLineReader(file, 8)) {
+			assertEquals(List.of("windows", "last"), lines(reader));
+		}
+	}
+
+	@Test
+	void compressedLineTerminators(@TempDir Path dir) throws Exception {
+		final var file = dir.resolve("lines.log.gz");
+		try (var out = new GZIPOutputStream(Files.newOutputStream(file))) {
+			out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+		}
+
+		try (var reader = LineSource.open(file)) {
+			assertEquals(LINES, lines(reader));
+		}
+	}
+
+	private static List<String> lines(LineSource reader) throws IOException {
+		final var lines = new ArrayList<String>();
+		CharSequence line;
+		while ((line = reader.nextLine()) != null) {
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+}
@@ -3,6 +3,7 @@ package tooling.leyden.commands.logparser;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import tooling.leyden.aotcache.ClassObject;
 import tooling.leyden.aotcache.ConstantPoolObject;
 import tooling.leyden.aotcache.Information;
@@ -13,6 +14,9 @@ import tooling.leyden.commands.LoadFileCommand;
 
 import java.io.BufferedReader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -59,6 +63,30 @@ class TrainingLogParserTest extends DefaultTest {
 		assertTrue(Information.getMyself().getWarnings().stream().noneMatch(w -> w.getType() == WarningType.CacheLoad));
 	}
 
+	@Test
+	void loadInParallel(@TempDir Path dir) throws Exception {
+		final int files = 8;
+		for (int f = 0; f < files; f++) {
+			final var lines = new ArrayList<String>();
+			for (int i = 0; i < 500; i++) {
+				lines.add("[info][class,load] org.example.Shared" + i + " source: jrt:/java.base");
+				lines.add("[info][class,load] org.example.File" + f + "Class" + i + " source: shared objects file");
+			}
+			lines.add("[warning][aot] Skipping org/example/File" + f + ": Failed verification");
+			Files.write(dir.resolve("training-" + f + ".log"), lines);
+		}
+
+		getSystemRegistry().execute("load trainingLog --parallelism 4 " + dir.toAbsolutePath() + "/*.log");
+
+		final var information = Information.getMyself();
+		assertEquals(500 + files * 500, information.getExternalElements().keySet().stream()
+				.filter(k -> k.identifier().matches("org\\.example\\.(Shared|File\\d+Class)\\d+"))
+				.count());
+		assertEquals(files, information.getWarnings().size());
+		information.getElements("org.example.Shared0", null, null, true, true, "Class").forEach(e ->
+				assertEquals(files, e.getWhereDoesItComeFrom().size()));
+	}
+
 	@Test
 	void acceptConfiguration() {
 		parser.accept("[info][aot] Core region alignment: 4096");